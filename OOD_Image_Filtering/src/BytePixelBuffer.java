@@ -0,0 +1,103 @@
+/**
+ * This class represents a pixel buffer that stores every channel in a single byte. The red, green
+ * and blue bytes of each pixel are kept next to each other in one flat array in row order, so an
+ * image takes three bytes per pixel. Because a byte only holds eight bits, values are clamped to
+ * 0 to 255 when they are stored, and operations that need wider values work on their own scratch
+ * rows before writing back.
+ */
+public class BytePixelBuffer implements PixelBuffer {
+  /**
+   * This field represents the red, green and blue bytes of every pixel, one row after another.
+   */
+  private final byte[] data;
+  /**
+   * This field represents the width of this buffer.
+   */
+  private final int width;
+  /**
+   * This field represents the height of this buffer.
+   */
+  private final int height;
+
+  /**
+   * This constructs a black byte buffer of the given size.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @throws NegativeArraySizeException if either dimension is negative.
+   */
+  public BytePixelBuffer(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Dimensions cannot be negative.");
+    }
+    this.data = new byte[3 * width * height];
+    this.width = width;
+    this.height = height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getChannel(int row, int col, int channel) {
+    return data[3 * (row * width + col) + channel] & 0xFF;
+  }
+
+  @Override
+  public void setChannel(int row, int col, int channel, int value) {
+    data[3 * (row * width + col) + channel] = (byte) PixelBuffer.clamp(value);
+  }
+
+  @Override
+  public void setRGB(int row, int col, int r, int g, int b) {
+    int index = 3 * (row * width + col);
+    data[index] = (byte) PixelBuffer.clamp(r);
+    data[index + 1] = (byte) PixelBuffer.clamp(g);
+    data[index + 2] = (byte) PixelBuffer.clamp(b);
+  }
+
+  @Override
+  public int getRGB(int row, int col) {
+    int index = 3 * (row * width + col);
+    return ((data[index] & 0xFF) << 16) | ((data[index + 1] & 0xFF) << 8)
+            | (data[index + 2] & 0xFF);
+  }
+
+  @Override
+  public void getRow(int row, int[] rgb) {
+    int index = 3 * row * width;
+    for (int k = 0; k < width; k++, index += 3) {
+      rgb[k] = ((data[index] & 0xFF) << 16) | ((data[index + 1] & 0xFF) << 8)
+              | (data[index + 2] & 0xFF);
+    }
+  }
+
+  @Override
+  public void setRow(int row, int[] rgb) {
+    int index = 3 * row * width;
+    for (int k = 0; k < width; k++, index += 3) {
+      data[index] = (byte) (rgb[k] >> 16);
+      data[index + 1] = (byte) (rgb[k] >> 8);
+      data[index + 2] = (byte) rgb[k];
+    }
+  }
+
+  @Override
+  public PixelBuffer create(int width, int height) {
+    return new BytePixelBuffer(width, height);
+  }
+
+  @Override
+  public PixelBuffer copy() {
+    BytePixelBuffer copy = new BytePixelBuffer(width, height);
+    System.arraycopy(data, 0, copy.data, 0, data.length);
+    return copy;
+  }
+}
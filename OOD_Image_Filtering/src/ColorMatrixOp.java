@@ -0,0 +1,143 @@
+/**
+ * This class represents a colour transform that sets each channel of a pixel to a weighted sum of
+ * its old red, green and blue values, plus an optional offset. The matrix has one row per output
+ * channel, red first, and each row holds the red, green and blue weights followed by the offset
+ * if there is one.
+ *
+ * <p>Nothing is computed in floating point per pixel. When the transform is built every weight is
+ * multiplied by each of the 256 possible channel values and stored as a 16.16 fixed point number,
+ * so each pixel costs nine table lookups and adds. The sums are rounded down and clamped to 0 to
+ * 255 as they are stored, so no separate clamping pass is needed. A small bias is added to each
+ * sum to cover the rounding of the tables, which makes the result the exact whole part of the
+ * weighted sum for weights with up to four decimal places.
+ */
+public class ColorMatrixOp implements PointwiseOp {
+  /**
+   * This field represents the preset that turns an image gray.
+   */
+  public static final ColorMatrixOp GRAY = new ColorMatrixOp(new double[][]{
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722}});
+  /**
+   * This field represents the preset that gives an image a sepia tone.
+   */
+  public static final ColorMatrixOp SEPIA = new ColorMatrixOp(new double[][]{
+      {0.393, 0.769, 0.189},
+      {0.349, 0.689, 0.168},
+      {0.272, 0.534, 0.131}});
+  /**
+   * This field represents the number of fractional bits in the tables.
+   */
+  private static final int SHIFT = 16;
+  /**
+   * This field represents the largest weight allowed, which keeps every sum inside an int.
+   */
+  private static final double MAX_WEIGHT = 16;
+  /**
+   * This field represents the largest offset allowed, which keeps every sum inside an int.
+   */
+  private static final double MAX_OFFSET = 4096;
+  /**
+   * This field represents the amount added to every sum to cover the rounding of the tables, in
+   * units of the last fractional bit.
+   */
+  private static final int BIAS = 2;
+  /**
+   * This field represents the weight of each input channel for each output channel, times every
+   * channel value, in fixed point. The table for output channel i and input channel c is at index
+   * 3 * i + c.
+   */
+  private final int[][] tables;
+  /**
+   * This field represents the offset of each output channel in fixed point, including the bias.
+   */
+  private final int[] offsets;
+
+  /**
+   * This constructs a colour transform from a 3 by 3 matrix, or a 3 by 4 matrix whose last column
+   * holds the offsets.
+   *
+   * @param matrix the matrix, red row first.
+   * @throws IllegalArgumentException if the matrix is the wrong shape, or if a weight or an offset
+   *                                  is too large.
+   */
+  public ColorMatrixOp(double[][] matrix) {
+    if (matrix.length != 3) {
+      throw new IllegalArgumentException("A colour matrix must have three rows.");
+    }
+    int columns = matrix[0].length;
+    if (columns != 3 && columns != 4) {
+      throw new IllegalArgumentException("A colour matrix must have three or four columns.");
+    }
+    this.tables = new int[9][256];
+    this.offsets = new int[3];
+    for (int i = 0; i < 3; i++) {
+      if (matrix[i].length != columns) {
+        throw new IllegalArgumentException("Every row of the matrix must be the same length.");
+      }
+      for (int c = 0; c < 3; c++) {
+        double weight = matrix[i][c];
+        if (!(Math.abs(weight) <= MAX_WEIGHT)) {
+          throw new IllegalArgumentException("Weights must be between -16 and 16.");
+        }
+        for (int v = 0; v < 256; v++) {
+          tables[3 * i + c][v] = (int) Math.round(weight * v * (1 << SHIFT));
+        }
+      }
+      double offset = columns == 4 ? matrix[i][3] : 0;
+      if (!(Math.abs(offset) <= MAX_OFFSET)) {
+        throw new IllegalArgumentException("Offsets must be between -4096 and 4096.");
+      }
+      offsets[i] = (int) Math.round(offset * (1 << SHIFT)) + BIAS;
+    }
+  }
+
+  @Override
+  public void applyRow(int[] rgb, int width) {
+    int[] rr = tables[0];
+    int[] rg = tables[1];
+    int[] rb = tables[2];
+    int[] gr = tables[3];
+    int[] gg = tables[4];
+    int[] gb = tables[5];
+    int[] br = tables[6];
+    int[] bg = tables[7];
+    int[] bb = tables[8];
+    int redOffset = offsets[0];
+    int greenOffset = offsets[1];
+    int blueOffset = offsets[2];
+    for (int k = 0; k < width; k++) {
+      int r = (rgb[k] >> 16) & 0xFF;
+      int g = (rgb[k] >> 8) & 0xFF;
+      int b = rgb[k] & 0xFF;
+      int rPrime = PixelBuffer.clamp((rr[r] + rg[g] + rb[b] + redOffset) >> SHIFT);
+      int gPrime = PixelBuffer.clamp((gr[r] + gg[g] + gb[b] + greenOffset) >> SHIFT);
+      int bPrime = PixelBuffer.clamp((br[r] + bg[g] + bb[b] + blueOffset) >> SHIFT);
+      rgb[k] = (rPrime << 16) | (gPrime << 8) | bPrime;
+    }
+  }
+
+  /**
+   * This method works out a single channel of this matrix for a row of pixels, without changing
+   * the row. It gives the same values as that channel of applyRow, and is used when only one
+   * channel is needed, such as the gray value of a pixel.
+   *
+   * @param rgb     the packed rgb values of the row.
+   * @param width   the number of pixels in the row.
+   * @param channel the channel to work out, 0 for red, 1 for green and 2 for blue.
+   * @param values  the array to store the new values of the channel in.
+   */
+  public void applyChannel(int[] rgb, int width, int channel, int[] values) {
+    int[] fromRed = tables[3 * channel];
+    int[] fromGreen = tables[3 * channel + 1];
+    int[] fromBlue = tables[3 * channel + 2];
+    int offset = offsets[channel];
+    for (int k = 0; k < width; k++) {
+      int r = (rgb[k] >> 16) & 0xFF;
+      int g = (rgb[k] >> 8) & 0xFF;
+      int b = rgb[k] & 0xFF;
+      values[k] = PixelBuffer.clamp((fromRed[r] + fromGreen[g] + fromBlue[b] + offset) >> SHIFT);
+    }
+  }
+}
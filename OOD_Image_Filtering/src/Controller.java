@@ -1,5 +1,5 @@
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,7 +23,15 @@ public class Controller implements Features {
   private ImageInterface model;
   private ViewInterface view;
   private ImageManagerInterface imageMan;
-  private List<BufferedImage> historyOfImages;
+  private List<ImageInterface> historyOfImages;
+  /**
+   * This field represents the most snapshots of an image kept outside of the heap that the undo
+   * history holds. Each one is a full copy in its own scratch file, so the oldest are dropped and
+   * closed once there are more than this. It is read from the image.outOfCoreHistory system
+   * property and defaults to 4.
+   */
+  private final int outOfCoreHistory = Math.max(1, Integer.getInteger("image.outOfCoreHistory",
+          4));
 
   /**
    * This the constructor for this Controller. It initializes this model, this view, an ImageManager
@@ -44,9 +52,8 @@ public class Controller implements Features {
   @Override
   public void addHistory() {
     if (this.model != null) {
-      BufferedImage currentImage = this.imageMan.displayImage(this.model.getMyImage(),
-              this.model.getMyImageWidth(), this.model.getMyImageHeight());
-      historyOfImages.add(currentImage);
+      historyOfImages.add(this.model.snapshot());
+      trimHistory();
       System.out.println(historyOfImages.size() + " Size of list");
     }
   }
@@ -62,10 +69,12 @@ public class Controller implements Features {
           text = view.getFileName();
         }
         try {
+          ImageInterface previous = this.model;
           this.model = this.imageMan.loadImage(text);
-          BufferedImage output = this.imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
-          historyOfImages.add(output);
+          release(previous);
+          BufferedImage output = this.imageMan.displayImage(this.model.getPixelBuffer());
+          historyOfImages.add(this.model.snapshot());
+          trimHistory();
           view.setOutput(output);
         } catch (IOException e) {
           view.fileNotFound();
@@ -75,19 +84,57 @@ public class Controller implements Features {
       case "Blur":
         if (this.model != null) {
           this.model.blurImage();
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } else {
           view.noImageLoaded();
         }
         break;
 
+      case "Gaussian Blur":
+        if (this.model != null) {
+          double sigma;
+          if (source.equals("GUI")) {
+            sigma = view.getSigma();
+          } else {
+            sigma = view.getBatchSigma();
+          }
+          if (GaussianBlur.isValidSigma(sigma)) {
+            this.model.blurImage(sigma);
+            BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
+            view.setOutput(output);
+          } else {
+            view.incorrectDimensions();
+          }
+        } else {
+          view.noImageLoaded();
+        }
+        break;
+
+      case "Box Blur":
+        if (this.model != null) {
+          int radius;
+          if (source.equals("GUI")) {
+            radius = view.getDimensionOne();
+          } else {
+            radius = view.getBatchDimensionOne();
+          }
+          if (radius >= 0) {
+            this.model.boxBlur(radius);
+            BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
+            view.setOutput(output);
+          } else {
+            view.incorrectDimensions();
+          }
+        } else {
+          view.noImageLoaded();
+        }
+        break;
+
       case "Sharpen":
         if (this.model != null) {
           this.model.sharpenImage();
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } else {
           view.noImageLoaded();
@@ -97,8 +144,7 @@ public class Controller implements Features {
       case "Sepia":
         if (this.model != null) {
           this.model.sepiaTone();
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } else {
           view.noImageLoaded();
@@ -108,8 +154,7 @@ public class Controller implements Features {
       case "Grayscale":
         if (this.model != null) {
           this.model.grayScale();
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } else {
           view.noImageLoaded();
@@ -119,38 +164,58 @@ public class Controller implements Features {
       case "Dither":
         if (this.model != null) {
           this.model.dither();
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } else {
           view.noImageLoaded();
         }
         break;
 
+      case "Ordered Dither":
+        if (this.model != null) {
+          int size;
+          if (source.equals("GUI")) {
+            size = view.getDimensionOne();
+          } else {
+            size = view.getBatchDimensionOne();
+          }
+          if (OrderedDither.isValidSize(size)) {
+            this.model.orderedDither(size);
+            BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
+            view.setOutput(output);
+          } else {
+            view.incorrectDimensions();
+          }
+        } else {
+          view.noImageLoaded();
+        }
+        break;
+
       case "Mosaic":
-        try {
-          if (this.model != null) {
-            int seeds;
-            if (source.equals("GUI")) {
-              seeds = view.getDimensionOne();
-            } else {
-              seeds = view.getBatchDimensionOne();
-            }
+        if (this.model != null) {
+          int seeds;
+          if (source.equals("GUI")) {
+            seeds = view.getDimensionOne();
+          } else {
+            seeds = view.getBatchDimensionOne();
+          }
+          if (seeds > 0) {
             this.model.mosaic(seeds);
-            BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                    this.model.getMyImageWidth(), this.model.getMyImageHeight());
+            BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
             view.setOutput(output);
           } else {
-            view.noImageLoaded();
+            view.incorrectDimensions();
           }
-        } catch (IndexOutOfBoundsException e) {
-          view.incorrectDimensions();
+        } else {
+          view.noImageLoaded();
         }
         break;
 
       case "Checkerboard":
         try {
+          ImageInterface previous = this.model;
           this.model = this.imageMan.createImage();
+          release(previous);
           int squareSize;
           if (source.equals("GUI")) {
             squareSize = view.getDimensionOne();
@@ -159,8 +224,7 @@ public class Controller implements Features {
           }
 
           this.model.checkerBoard(squareSize);
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } catch (NegativeArraySizeException e) {
           view.incorrectDimensions();
@@ -169,7 +233,9 @@ public class Controller implements Features {
 
       case "Horizontal Rainbow":
         try {
+          ImageInterface previous = this.model;
           this.model = this.imageMan.createImage();
+          release(previous);
           int dimOne;
           int dimTwo;
           if (source.equals("GUI")) {
@@ -180,8 +246,7 @@ public class Controller implements Features {
             dimTwo = view.getBatchDimensionTwo();
           }
           this.model.rainbowHorizontal(dimOne, dimTwo);
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } catch (NegativeArraySizeException e) {
           view.incorrectDimensions();
@@ -189,7 +254,9 @@ public class Controller implements Features {
         break;
       case "Vertical Rainbow":
         try {
+          ImageInterface previous = this.model;
           this.model = this.imageMan.createImage();
+          release(previous);
           int dimOne;
           int dimTwo;
           if (source.equals("GUI")) {
@@ -200,8 +267,7 @@ public class Controller implements Features {
             dimTwo = view.getBatchDimensionTwo();
           }
           this.model.rainbowVertical(dimOne, dimTwo);
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } catch (NegativeArraySizeException e) {
           view.incorrectDimensions();
@@ -211,7 +277,9 @@ public class Controller implements Features {
         try {
           int dimOne;
           int dimTwo;
+          ImageInterface previous = this.model;
           this.model = this.imageMan.createImage();
+          release(previous);
           if (source.equals("GUI")) {
             dimOne = view.getDimensionOne();
             dimTwo = view.getDimensionTwo();
@@ -220,8 +288,7 @@ public class Controller implements Features {
             dimTwo = view.getBatchDimensionTwo();
           }
           this.model.flagFrance(dimOne, dimTwo);
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } catch (NegativeArraySizeException e) {
           view.incorrectDimensions();
@@ -230,7 +297,9 @@ public class Controller implements Features {
       case "Flag Switzerland":
         try {
           int dimOne;
+          ImageInterface previous = this.model;
           this.model = this.imageMan.createImage();
+          release(previous);
 
           if (source.equals("GUI")) {
             dimOne = view.getDimensionOne();
@@ -238,8 +307,7 @@ public class Controller implements Features {
             dimOne = view.getBatchDimensionOne();
           }
           this.model.flagSwitzerland(dimOne);
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } catch (NegativeArraySizeException e) {
           view.incorrectDimensions();
@@ -249,7 +317,9 @@ public class Controller implements Features {
         try {
           int dimOne;
           int dimTwo;
+          ImageInterface previous = this.model;
           this.model = this.imageMan.createImage();
+          release(previous);
 
           if (source.equals("GUI")) {
             dimOne = view.getDimensionOne();
@@ -259,8 +329,7 @@ public class Controller implements Features {
             dimTwo = view.getBatchDimensionTwo();
           }
           this.model.flagGreek(dimOne, dimTwo);
-          BufferedImage output = imageMan.displayImage(this.model.getMyImage(),
-                  this.model.getMyImageWidth(), this.model.getMyImageHeight());
+          BufferedImage output = imageMan.displayImage(this.model.getPixelBuffer());
           view.setOutput(output);
         } catch (NegativeArraySizeException e) {
           view.incorrectDimensions();
@@ -287,30 +356,54 @@ public class Controller implements Features {
   @Override
   public void undoOperation(int amount) {
     try {
-      historyOfImages.remove(historyOfImages.size() - 1);
-      view.setOutput(historyOfImages.get(historyOfImages.size() - 1));
-      this.model = new Image(readImage(historyOfImages.get(historyOfImages.size() - 1)),
-              historyOfImages.get(historyOfImages.size() - 1).getWidth(),
-              historyOfImages.get(historyOfImages.size() - 1).getHeight());
+      ImageInterface previous = this.model;
+      ImageInterface restored = historyOfImages.get(historyOfImages.size() - 2).snapshot();
+      release(historyOfImages.remove(historyOfImages.size() - 1));
+      this.model = restored;
+      release(previous);
+      view.setOutput(this.imageMan.displayImage(this.model.getPixelBuffer()));
       //System.out.println(historyOfImages.size() + " Size of list after undo");
     } catch (NullPointerException | IndexOutOfBoundsException e) {
       return;
     }
   }
 
-  private static int[][][] readImage(BufferedImage input) {
-    int[][][] result = new int[input.getHeight()][input.getWidth()][3];
+  /**
+   * This private helper method drops the oldest snapshots of images kept outside of the heap from
+   * the undo history, closing them, until no more than outOfCoreHistory of them are left.
+   */
+  private void trimHistory() {
+    int outOfCore = 0;
+    for (ImageInterface entry : historyOfImages) {
+      if (entry instanceof Closeable) {
+        outOfCore++;
+      }
+    }
+    int i = 0;
+    while (i < historyOfImages.size() && outOfCore > outOfCoreHistory) {
+      if (historyOfImages.get(i) instanceof Closeable) {
+        release(historyOfImages.remove(i));
+        outOfCore--;
+      } else {
+        i++;
+      }
+    }
+  }
 
-    for (int i = 0; i < input.getHeight(); i++) {
-      for (int j = 0; j < input.getWidth(); j++) {
-        int color = input.getRGB(j, i);
-        Color c = new Color(color);
-        result[i][j][0] = c.getRed();
-        result[i][j][1] = c.getGreen();
-        result[i][j][2] = c.getBlue();
+  /**
+   * This private helper method releases a model that is no longer shown. Models that hold
+   * resources outside of the heap, such as memory mapped images, are closed.
+   *
+   * @param previous the model to release, or null if there is none.
+   */
+  private void release(ImageInterface previous) {
+    if (previous instanceof Closeable) {
+      try {
+        ((Closeable) previous).close();
+      } catch (IOException e) {
+        return;
       }
     }
-    return result;
   }
 }
 
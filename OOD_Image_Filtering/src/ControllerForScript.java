@@ -1,9 +1,11 @@
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * This class acts as a controller for the script mode. The roll of the controller here is to take
@@ -38,52 +40,126 @@ public class ControllerForScript {
     Objects.requireNonNull(imageProvided);
     Scanner input = new Scanner(this.in);
     ImageInterface image = null;
+    List<PointwiseOp> pendingOps = new ArrayList<>();
+    List<Consumer<ImageInterface>> pendingCalls = new ArrayList<>();
     try {
       while (true) {
-        switch (input.next()) {
+        String command = input.next();
+        if (!isPointwise(command) && !applyPending(image, pendingOps, pendingCalls)) {
+          return;
+        }
+        switch (command) {
           case "load":
             try {
               String fileName = input.next();
+              release(image);
+              image = null;
               image = imageProvided.loadImage(fileName);
             } catch (IOException e) {
               System.out.println("File Not found.");
             }
             break;
+          case "stream":
+            try {
+              String fileName = input.next();
+              release(image);
+              image = null;
+              image = imageProvided.streamImage(fileName);
+            } catch (IOException e) {
+              System.out.println("File Not found.");
+            }
+            break;
           case "blur":
             try {
-              image.blurImage();
+              if (input.hasNextDouble()) {
+                double sigma = input.nextDouble();
+                if (GaussianBlur.isValidSigma(sigma)) {
+                  image.blurImage(sigma);
+                } else {
+                  System.out.println("Incorrect sigma input. Try again.");
+                  return;
+                }
+              } else {
+                image.blurImage();
+              }
             } catch (NullPointerException e) {
               System.out.println("No file Loaded. Please Try again.");
               return;
             }
             break;
-          case "sharpen":
+          case "boxblur":
             try {
-              image.sharpenImage();
+              List<Integer> radius = validTwoInputs(input);
+              if (radius.size() == 1 && radius.get(0) >= 0) {
+                image.boxBlur(radius.get(0));
+              } else {
+                System.out.println("Incorrect radius input. Try again.");
+                return;
+              }
             } catch (NullPointerException e) {
               System.out.println("No file Loaded. Please Try again.");
               return;
             }
             break;
-          case "gray":
+          case "convolve":
             try {
-              image.grayScale();
+              double[][] kernel = imageProvided.loadKernel(input.next());
+              image.convolve(kernel);
+            } catch (IOException e) {
+              System.out.println("Kernel file not found.");
+            } catch (IllegalArgumentException e) {
+              System.out.println("Incorrect kernel input. Try again.");
+              return;
             } catch (NullPointerException e) {
               System.out.println("No file Loaded. Please Try again.");
               return;
             }
             break;
-          case "sepia":
+          case "sharpen":
             try {
-              image.sepiaTone();
+              image.sharpenImage();
             } catch (NullPointerException e) {
               System.out.println("No file Loaded. Please Try again.");
               return;
             }
             break;
+          case "gray":
+            pendingOps.add(ColorMatrixOp.GRAY);
+            pendingCalls.add(ImageInterface::grayScale);
+            break;
+          case "sepia":
+            pendingOps.add(ColorMatrixOp.SEPIA);
+            pendingCalls.add(ImageInterface::sepiaTone);
+            break;
+          case "colormatrix":
+            double[][] matrix = validMatrix(input);
+            ColorMatrixOp op;
+            try {
+              op = matrix == null ? null : new ColorMatrixOp(matrix);
+            } catch (IllegalArgumentException e) {
+              op = null;
+            }
+            if (op == null) {
+              System.out.println("Incorrect matrix input. Try again.");
+              return;
+            }
+            pendingOps.add(op);
+            pendingCalls.add(pending -> pending.colorMatrix(matrix));
+            break;
           case "dither":
             try {
-              image.dither();
+              if (input.hasNext("ordered")) {
+                input.next();
+                List<Integer> size = validTwoInputs(input);
+                if (size.size() == 1 && OrderedDither.isValidSize(size.get(0))) {
+                  image.orderedDither(size.get(0));
+                } else {
+                  System.out.println("Incorrect matrix size input. Try again.");
+                  return;
+                }
+              } else {
+                image.dither();
+              }
             } catch (NullPointerException e) {
               System.out.println("No file Loaded. Please Try again.");
               return;
@@ -91,13 +167,17 @@ public class ControllerForScript {
             break;
           case "mosaic":
             try {
-              List<Integer> dimensions = validTwoInputs(input);
-              if (dimensions.size() == 1) {
-                image.mosaic(dimensions.get(0));
-              } else {
+              int seeds = input.hasNextInt() ? input.nextInt() : 0;
+              if (seeds <= 0) {
                 System.out.println("Incorrect seed input. Try again.");
                 return;
               }
+              //The random seed is a long, so the whole range of seeds can be given.
+              if (input.hasNextLong()) {
+                image.mosaic(seeds, input.nextLong());
+              } else {
+                image.mosaic(seeds);
+              }
             } catch (NullPointerException e) {
               System.out.println("No file Loaded. Please Try again.");
               return;
@@ -105,6 +185,7 @@ public class ControllerForScript {
             break;
           case "horizontalRainbow":
 
+            release(image);
             image = imageProvided.createImage();
             List<Integer> dimensions = validTwoInputs(input);
             if (dimensions.size() == 2) {
@@ -117,6 +198,7 @@ public class ControllerForScript {
 
           case "verticalRainbow":
 
+            release(image);
             image = imageProvided.createImage();
             dimensions = validTwoInputs(input);
             if (dimensions.size() == 2) {
@@ -129,6 +211,7 @@ public class ControllerForScript {
 
           case "checkerboard":
 
+            release(image);
             image = imageProvided.createImage();
             dimensions = validTwoInputs(input);
             if (dimensions.size() == 1) {
@@ -142,6 +225,7 @@ public class ControllerForScript {
 
           case "france":
 
+            release(image);
             image = imageProvided.createImage();
             dimensions = validTwoInputs(input);
             if (dimensions.size() == 2) {
@@ -154,6 +238,7 @@ public class ControllerForScript {
             break;
           case "greece":
 
+            release(image);
             image = imageProvided.createImage();
             dimensions = validTwoInputs(input);
             if (dimensions.size() == 2) {
@@ -165,6 +250,7 @@ public class ControllerForScript {
             break;
           case "switzerland":
 
+            release(image);
             image = imageProvided.createImage();
             dimensions = validTwoInputs(input);
             if (dimensions.size() == 1) {
@@ -190,8 +276,92 @@ public class ControllerForScript {
         }
       }
     } catch (NoSuchElementException e) {
-      return;
+      applyPending(image, pendingOps, pendingCalls);
+    } finally {
+      release(image);
+    }
+  }
+
+  /**
+   * This private helper method checks whether a command only changes each pixel using its old
+   * value. Runs of these commands are held back and applied to the image together in one pass.
+   *
+   * @param command the command read from the script.
+   * @return true if the command is gray, sepia or colormatrix.
+   */
+  private static boolean isPointwise(String command) {
+    return command.equals("gray") || command.equals("sepia") || command.equals("colormatrix");
+  }
+
+  /**
+   * This private helper method applies the pointwise commands that have been held back. A single
+   * command is applied with its own method on the image. Two or more are fused into one operation
+   * that reads and writes each row once, which gives the same pixels as applying them in turn.
+   *
+   * @param image the image to apply the commands to.
+   * @param ops   the operations of the held back commands, in order.
+   * @param calls the model method of each held back command, in order.
+   * @return false if there is no image loaded, true otherwise.
+   */
+  private boolean applyPending(ImageInterface image, List<PointwiseOp> ops,
+                               List<Consumer<ImageInterface>> calls) {
+    try {
+      if (calls.size() == 1) {
+        calls.get(0).accept(image);
+      } else if (calls.size() > 1) {
+        PointwiseOp fused = ops.get(0);
+        for (int i = 1; i < ops.size(); i++) {
+          fused = fused.andThen(ops.get(i));
+        }
+        image.applyPointwise(fused);
+      }
+      return true;
+    } catch (NullPointerException e) {
+      System.out.println("No file Loaded. Please Try again.");
+      return false;
+    } finally {
+      ops.clear();
+      calls.clear();
+    }
+  }
+
+  /**
+   * This private helper method releases an image that is no longer used by the script. Images
+   * that hold resources outside of the heap, such as memory mapped images, are closed.
+   *
+   * @param image the image to release, or null if there is none.
+   */
+  private void release(ImageInterface image) {
+    if (image instanceof Closeable) {
+      try {
+        ((Closeable) image).close();
+      } catch (IOException e) {
+        System.out.println("Could not release the image.");
+      }
+    }
+  }
+
+  /**
+   * This private helper method reads the values of a colour matrix. It takes either nine values,
+   * three per row, or twelve values, three weights and an offset per row, red row first.
+   *
+   * @param input the token that the scanner is on.
+   * @return the matrix, or null if there were not nine or twelve values.
+   */
+  private double[][] validMatrix(Scanner input) {
+    List<Double> values = new ArrayList<>();
+    while (input.hasNextDouble() && values.size() < 12) {
+      values.add(input.nextDouble());
+    }
+    if (values.size() != 9 && values.size() != 12) {
+      return null;
+    }
+    int columns = values.size() / 3;
+    double[][] matrix = new double[3][columns];
+    for (int i = 0; i < values.size(); i++) {
+      matrix[i / columns][i % columns] = values.get(i);
     }
+    return matrix;
   }
 
   /**
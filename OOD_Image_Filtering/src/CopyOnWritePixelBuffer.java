@@ -0,0 +1,267 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents a packed pixel buffer split into square tiles that can be shared between
+ * snapshots. Taking a snapshot does not copy any pixels: the snapshot and this buffer both keep
+ * pointing at the same tiles, and a tile is only copied the first time either of them writes to
+ * it. The table of tiles itself is copied on the first write after a snapshot. This makes a
+ * snapshot cost the same whatever the size of the image, and an edit only duplicates the tiles it
+ * changes.
+ */
+public class CopyOnWritePixelBuffer implements PixelBuffer {
+  /**
+   * This field represents the base two logarithm of the width and height of a full tile.
+   */
+  private static final int TILE_SHIFT = 6;
+  /**
+   * This field represents the width and height of a full tile in pixels.
+   */
+  private static final int TILE_SIZE = 1 << TILE_SHIFT;
+  /**
+   * This field represents the source of generation numbers. Every buffer gets a new one whenever
+   * it is snapshotted, which marks all of its tiles as shared.
+   */
+  private static final AtomicLong GENERATIONS = new AtomicLong();
+  /**
+   * This field represents the width of this buffer.
+   */
+  private final int width;
+  /**
+   * This field represents the height of this buffer.
+   */
+  private final int height;
+  /**
+   * This field represents the number of tiles across this buffer.
+   */
+  private final int tilesAcross;
+  /**
+   * This field represents the packed rgb values of every tile, counting across and then down.
+   */
+  private int[][] tiles;
+  /**
+   * This field represents the generation that last copied each tile. A tile belongs to this
+   * buffer only if its generation matches the generation of this buffer.
+   */
+  private long[] owners;
+  /**
+   * This field represents whether the tables of tiles and owners are shared with a snapshot.
+   */
+  private boolean tableShared;
+  /**
+   * This field represents the generation of this buffer.
+   */
+  private long generation;
+
+  /**
+   * This constructs a black copy-on-write buffer of the given size.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @throws NegativeArraySizeException if either dimension is negative.
+   */
+  public CopyOnWritePixelBuffer(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Dimensions cannot be negative.");
+    }
+    this.width = width;
+    this.height = height;
+    this.tilesAcross = (width + TILE_SIZE - 1) >> TILE_SHIFT;
+    int tilesDown = (height + TILE_SIZE - 1) >> TILE_SHIFT;
+    this.tiles = new int[tilesAcross * tilesDown][];
+    this.owners = new long[tiles.length];
+    this.generation = GENERATIONS.incrementAndGet();
+    for (int i = 0; i < tiles.length; i++) {
+      tiles[i] = new int[tileWidth(i % tilesAcross) * tileHeight(i / tilesAcross)];
+      owners[i] = generation;
+    }
+  }
+
+  /**
+   * This constructs a buffer that shares the tiles of another buffer.
+   *
+   * @param other the buffer whose tiles are shared.
+   */
+  private CopyOnWritePixelBuffer(CopyOnWritePixelBuffer other) {
+    this.width = other.width;
+    this.height = other.height;
+    this.tilesAcross = other.tilesAcross;
+    this.tiles = other.tiles;
+    this.owners = other.owners;
+    this.tableShared = true;
+    this.generation = GENERATIONS.incrementAndGet();
+  }
+
+  /**
+   * This method builds a copy-on-write buffer holding the same pixels as another buffer.
+   *
+   * @param buffer the buffer to copy.
+   * @return the copy-on-write buffer.
+   */
+  public static CopyOnWritePixelBuffer of(PixelBuffer buffer) {
+    CopyOnWritePixelBuffer result = new CopyOnWritePixelBuffer(buffer.getWidth(),
+            buffer.getHeight());
+    int[] row = new int[buffer.getWidth()];
+    for (int j = 0; j < buffer.getHeight(); j++) {
+      buffer.getRow(j, row);
+      result.setRow(j, row);
+    }
+    return result;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getChannel(int row, int col, int channel) {
+    return (getRGB(row, col) >> (16 - 8 * channel)) & 0xFF;
+  }
+
+  @Override
+  public void setChannel(int row, int col, int channel, int value) {
+    int shift = 16 - 8 * channel;
+    int[] tile = writableTile(tileIndex(row, col));
+    int index = indexInTile(row, col);
+    tile[index] = (tile[index] & ~(0xFF << shift)) | (PixelBuffer.clamp(value) << shift);
+  }
+
+  @Override
+  public void setRGB(int row, int col, int r, int g, int b) {
+    writableTile(tileIndex(row, col))[indexInTile(row, col)] = (PixelBuffer.clamp(r) << 16)
+            | (PixelBuffer.clamp(g) << 8) | PixelBuffer.clamp(b);
+  }
+
+  @Override
+  public int getRGB(int row, int col) {
+    return tiles[tileIndex(row, col)][indexInTile(row, col)];
+  }
+
+  @Override
+  public void getRow(int row, int[] rgb) {
+    int first = (row >> TILE_SHIFT) * tilesAcross;
+    for (int x = 0; x < tilesAcross; x++) {
+      int tileWidth = tileWidth(x);
+      System.arraycopy(tiles[first + x], (row & (TILE_SIZE - 1)) * tileWidth, rgb,
+              x << TILE_SHIFT, tileWidth);
+    }
+  }
+
+  @Override
+  public void setRow(int row, int[] rgb) {
+    int first = (row >> TILE_SHIFT) * tilesAcross;
+    for (int x = 0; x < tilesAcross; x++) {
+      int[] tile = writableTile(first + x);
+      int tileWidth = tileWidth(x);
+      int offset = (row & (TILE_SIZE - 1)) * tileWidth;
+      for (int k = 0; k < tileWidth; k++) {
+        tile[offset + k] = rgb[(x << TILE_SHIFT) + k] & 0xFFFFFF;
+      }
+    }
+  }
+
+  @Override
+  public PixelBuffer create(int width, int height) {
+    return new CopyOnWritePixelBuffer(width, height);
+  }
+
+  @Override
+  public PixelBuffer copy() {
+    return of(this);
+  }
+
+  /**
+   * This method takes a snapshot of this buffer without copying any pixels. The snapshot and this
+   * buffer share every tile until one of them writes to it.
+   *
+   * @return the snapshot of this buffer.
+   */
+  @Override
+  public PixelBuffer snapshot() {
+    CopyOnWritePixelBuffer snapshot = new CopyOnWritePixelBuffer(this);
+    this.tableShared = true;
+    this.generation = GENERATIONS.incrementAndGet();
+    return snapshot;
+  }
+
+  /**
+   * This method makes a new buffer that shares the tiles of this buffer without changing this
+   * buffer in any way. It is meant for buffers that are never written again, such as the pixels of
+   * an immutable image, and can be called from several threads at once. Writing to this buffer
+   * after forking it would also change the fork, so use snapshot for buffers that are still being
+   * edited.
+   *
+   * @return the new buffer sharing the tiles of this buffer.
+   */
+  public CopyOnWritePixelBuffer fork() {
+    return new CopyOnWritePixelBuffer(this);
+  }
+
+  /**
+   * This is a helper method that gets a tile that this buffer may write to. The tables are copied
+   * if they are still shared with a snapshot, and the tile is copied if it belongs to another
+   * generation.
+   *
+   * @param index the index of the tile.
+   * @return the pixels of that tile, owned by this buffer.
+   */
+  private int[] writableTile(int index) {
+    if (tableShared) {
+      tiles = tiles.clone();
+      owners = owners.clone();
+      tableShared = false;
+    }
+    if (owners[index] != generation) {
+      tiles[index] = tiles[index].clone();
+      owners[index] = generation;
+    }
+    return tiles[index];
+  }
+
+  /**
+   * This is a helper method that gets the index of the tile holding a pixel.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the index of that tile.
+   */
+  private int tileIndex(int row, int col) {
+    return (row >> TILE_SHIFT) * tilesAcross + (col >> TILE_SHIFT);
+  }
+
+  /**
+   * This is a helper method that gets the position of a pixel inside its tile.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the index of the pixel inside its tile.
+   */
+  private int indexInTile(int row, int col) {
+    return (row & (TILE_SIZE - 1)) * tileWidth(col >> TILE_SHIFT) + (col & (TILE_SIZE - 1));
+  }
+
+  /**
+   * This is a helper method that gets the width of the tiles in a column of tiles.
+   *
+   * @param x the column of tiles.
+   * @return the width of those tiles.
+   */
+  private int tileWidth(int x) {
+    return Math.min(TILE_SIZE, width - (x << TILE_SHIFT));
+  }
+
+  /**
+   * This is a helper method that gets the height of the tiles in a row of tiles.
+   *
+   * @param y the row of tiles.
+   * @return the height of those tiles.
+   */
+  private int tileHeight(int y) {
+    return Math.min(TILE_SIZE, height - (y << TILE_SHIFT));
+  }
+}
@@ -0,0 +1,293 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents Floyd-Steinberg dithering of an image to black and white. Each pixel is
+ * turned gray, set to black or white, whichever is nearer, and the difference is spread to the
+ * pixel on its right and the three pixels below it. Only the gray channel is worked on, and the
+ * error is carried in int rows: the row being dithered and the row below it. Each row starts
+ * clamped to 0 to 255, and every addition of error is truncated toward zero, exactly as in the
+ * original method on the model.
+ *
+ * <p>The pixels of a row depend on the pixels to their left and on the row above, so rows cannot
+ * simply be split into bands. They can still overlap as a wavefront: a pixel only needs the row
+ * above to have finished the pixel diagonally above and to its right, so each row can follow two
+ * pixels behind the one above it. With more than one thread, rows are dealt out to the threads in
+ * turn and each thread waits on the progress of the row above before every pixel. The result is
+ * the same as the sequential algorithm.
+ *
+ * <p>The rows cannot run on the fork/join pool of RowBands. A waiting row spins on its thread
+ * instead of giving it back, so every row in flight needs a thread of its own at once, and the
+ * fork/join pool may run fewer tasks than that, or none while its threads work on an enclosing
+ * band. The rows run instead on a pool of their own that starts a thread whenever all of its
+ * threads are busy and keeps idle threads for the next image.
+ *
+ * <p>Run one row after another, each row only needs the row below it, so the sequential
+ * algorithm can also run as a stage of a ScanlinePipeline.
+ */
+public class DitherEngine implements ScanlineStage {
+  /**
+   * This field represents how many pixels a row publishes its progress after, so the row below
+   * is not woken for every pixel.
+   */
+  private static final int PUBLISH_EVERY = 16;
+  /**
+   * This field represents how many times a waiting row checks for progress before it yields.
+   */
+  private static final int SPINS = 1000;
+  /**
+   * This field represents the pool the rows of a wavefront run on. It starts a thread whenever
+   * every thread it has is busy, so no row waits for a thread, and its threads are daemons so
+   * they do not keep the program running.
+   */
+  private static final ExecutorService WORKERS = Executors.newCachedThreadPool(task -> {
+    Thread thread = new Thread(task, "dither");
+    thread.setDaemon(true);
+    return thread;
+  });
+  /**
+   * This field represents the number of threads that dither rows at the same time.
+   */
+  private final int threads;
+
+  /**
+   * This constructs a dithering engine.
+   *
+   * @param threads the number of threads that dither rows at the same time. One dithers every row
+   *                on the calling thread.
+   * @throws IllegalArgumentException if the number of threads is not positive.
+   */
+  public DitherEngine(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("There must be at least one thread.");
+    }
+    this.threads = threads;
+  }
+
+  /**
+   * This method dithers the source buffer and returns the result in a new buffer with the same
+   * layout. The source buffer is not changed.
+   *
+   * @param source the pixels to dither.
+   * @return the dithered pixels, each one black or white.
+   */
+  public PixelBuffer apply(PixelBuffer source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    PixelBuffer result = source.create(width, height);
+    if (width == 0 || height == 0) {
+      return result;
+    }
+    int count = Math.min(threads, height);
+    if (count == 1) {
+      ditherSequential(source, result);
+    } else {
+      ditherWavefront(source, result, count);
+    }
+    return result;
+  }
+
+  /**
+   * This is a helper method that dithers every row on the calling thread, keeping the error in two
+   * rolling rows through the cursor of this engine.
+   *
+   * @param source the pixels to dither.
+   * @param result the buffer to write the dithered pixels to.
+   */
+  private void ditherSequential(PixelBuffer source, PixelBuffer result) {
+    Cursor cursor = open(source);
+    int[] packed = new int[source.getWidth()];
+    for (int j = 0; j < source.getHeight(); j++) {
+      cursor.nextRow(j, packed);
+      result.setRow(j, packed);
+    }
+  }
+
+  @Override
+  public int getReach() {
+    return 1;
+  }
+
+  /**
+   * This method starts dithering a source one row after another. The error is kept in two
+   * rolling rows, the row being dithered and the row below it, and the rows must be asked for in
+   * order from the top.
+   *
+   * @param source the pixels to dither.
+   * @return the cursor that dithers the rows.
+   */
+  @Override
+  public Cursor open(PixelBuffer source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[][] rows = {new int[width], new int[width]};
+    int[] packed = new int[width];
+    return (j, rgb) -> {
+      if (j == 0) {
+        loadGray(source, 0, rows[0], packed);
+      }
+      int[] current = rows[j % 2];
+      int[] below = rows[(j + 1) % 2];
+      if (j + 1 < height) {
+        loadGray(source, j + 1, below, packed);
+      }
+      ditherRow(j, height, current, below, rgb, null, 0);
+    };
+  }
+
+  /**
+   * This is a helper method that dithers the rows as a wavefront on several threads. Thread t
+   * dithers rows t, t + count, t + 2 * count and so on. Each row in flight has its own error row,
+   * held in a ring with one more row than there are threads, and its progress is published in a
+   * matching ring so the row below can wait for it.
+   *
+   * @param source the pixels to dither.
+   * @param result the buffer to write the dithered pixels to.
+   * @param count  the number of threads.
+   */
+  private void ditherWavefront(PixelBuffer source, PixelBuffer result, int count) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int slots = count + 1;
+    int[][] rows = new int[slots][width];
+    AtomicLongArray progress = new AtomicLongArray(slots);
+    for (int i = 0; i < slots; i++) {
+      progress.set(i, -1);
+    }
+    loadGray(source, 0, rows[0], new int[width]);
+    Future<?>[] workers = new Future<?>[count];
+    for (int t = 0; t < count; t++) {
+      int first = t;
+      workers[t] = WORKERS.submit(() -> {
+        int[] packed = new int[width];
+        try {
+          for (int j = first; j < height; j += count) {
+            int[] current = rows[j % slots];
+            int[] below = rows[(j + 1) % slots];
+            if (j + 1 < height) {
+              loadGray(source, j + 1, below, packed);
+            }
+            ditherRow(j, height, current, below, packed, progress, slots);
+            result.setRow(j, packed);
+          }
+        } catch (RuntimeException | Error e) {
+          //The other rows are let go so they do not wait forever on this one.
+          for (int i = 0; i < slots; i++) {
+            progress.set(i, Long.MAX_VALUE);
+          }
+          throw e;
+        }
+      });
+    }
+    Throwable failure = null;
+    for (Future<?> worker : workers) {
+      try {
+        worker.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Dithering was interrupted.", e);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+  }
+
+  /**
+   * This is a helper method that dithers one row. The values in the current row are clamped as
+   * each pixel is reached, which gives the same values as clamping the whole row first because no
+   * pixel of the current row is changed by the rows above after it has been reached. The error
+   * carried to the right is kept apart and added after the clamp, as it was when the row was
+   * clamped first.
+   *
+   * @param j        the row to dither.
+   * @param height   the height of the image.
+   * @param current  the gray values of this row with the error from the row above.
+   * @param below    the gray values of the row below, to which this row adds its error.
+   * @param packed   the array to store the dithered row in as packed rgb values.
+   * @param progress the ring of published progress, or null if no other row runs at once.
+   * @param slots    the size of the ring of progress.
+   */
+  private static void ditherRow(int j, int height, int[] current, int[] below, int[] packed,
+                                AtomicLongArray progress, int slots) {
+    int width = current.length;
+    boolean hasBelow = j + 1 < height;
+    int error = 0;
+    for (int k = 0; k < width; k++) {
+      if (progress != null && j > 0) {
+        awaitAbove(progress, slots, j, width, Math.min(width, k + 2));
+      }
+      int oldColor = PixelBuffer.clamp(current[k]);
+      if (k > 0) {
+        oldColor = (int) (oldColor + (7 / 16.0) * error);
+      }
+      int newColor;
+      if (Math.abs(oldColor - 0) < Math.abs(oldColor - 255)) {
+        newColor = 0;
+      } else {
+        newColor = 255;
+      }
+      error = oldColor - newColor;
+      packed[k] = newColor == 0 ? 0 : 0xFFFFFF;
+      if (hasBelow) {
+        if (k - 1 >= 0) {
+          below[k - 1] = (int) (below[k - 1] + (3 / 16.0) * error);
+        }
+        below[k] = (int) (below[k] + (5 / 16.0) * error);
+        if (k + 1 < width) {
+          below[k + 1] = (int) (below[k + 1] + (1 / 16.0) * error);
+        }
+      }
+      if (progress != null && ((k + 1) % PUBLISH_EVERY == 0 || k + 1 == width)) {
+        progress.lazySet(j % slots, (long) j * (width + 1) + k + 1);
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that waits until the row above has finished a number of pixels.
+   * Progress is stored as the row times one more than the width plus the pixels done, so a
+   * reused slot never looks further along than the row that now owns it.
+   *
+   * @param progress the ring of published progress.
+   * @param slots    the size of the ring.
+   * @param j        the row that is waiting.
+   * @param width    the width of the image.
+   * @param needed   the number of pixels the row above must have finished.
+   */
+  private static void awaitAbove(AtomicLongArray progress, int slots, int j, int width,
+                                 int needed) {
+    long target = (long) (j - 1) * (width + 1) + needed;
+    int slot = (j - 1) % slots;
+    int spins = 0;
+    while (progress.get(slot) < target) {
+      if (++spins < SPINS) {
+        Thread.onSpinWait();
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that turns one row of the source gray and stores the gray values.
+   *
+   * @param source the pixels to read.
+   * @param row    the row to read.
+   * @param gray   the array to store the gray values in.
+   * @param packed a scratch array of packed rgb values as long as the width of the image.
+   */
+  private static void loadGray(PixelBuffer source, int row, int[] gray, int[] packed) {
+    source.getRow(row, packed);
+    ColorMatrixOp.GRAY.applyChannel(packed, packed.length, 0, gray);
+  }
+}
@@ -1,6 +1,7 @@
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 
 
 /**
@@ -15,12 +16,18 @@ public class Driver {
    * this program, the text file is considered to be input.txt, which contains the commands that the
    * user puts in for the program and runs as a batch script. If args configuration is -interactive,
    * then the program opens up a gui where the user can apply commands and see changes one at a
-   * time. A batch script functionality is also incorporated within the GUI.
+   * time. A batch script functionality is also incorporated within the GUI. Either configuration
+   * can be preceded by -parallelism and a number of threads, which sets how many threads the
+   * filters use.
    *
    * @param args command line arguments, input.txt.
    * @throws IOException if the file reader cannot find the file.
    */
   public static void main(String[] args) throws IOException {
+    if (args.length > 2 && args[0].equals("-parallelism")) {
+      System.setProperty("image.parallelism", args[1]);
+      args = Arrays.copyOfRange(args, 2, args.length);
+    }
     if (args[0].equals("-script")) {
       Readable in = new FileReader(args[1]);
       new ControllerForScript(in).goControllerForScript(new ImageManager());
@@ -0,0 +1,329 @@
+import java.util.Arrays;
+
+/**
+ * This class represents a convolution that is computed with fast Fourier transforms instead of
+ * summing the kernel at every pixel. It gives the same result as the convolution engine, up to
+ * rounding, but its cost per pixel grows with the logarithm of the kernel size instead of the
+ * kernel area, which makes it much faster for large kernels.
+ *
+ * <p>The image is cut into square tiles. Each tile is read together with a margin of half the
+ * kernel on every side, filled in by the border mode past the edge of the image, and transformed
+ * in a block whose side is a power of two. The transform of the kernel is computed once and
+ * multiplied into every block, and the part of the inverse transform that does not wrap around is
+ * the convolved tile. Because the kernel is real, two channels are transformed at once: red as the
+ * real part and green as the imaginary part of one block, and blue on its own in a second block.
+ */
+public class FftConvolution {
+  /**
+   * This field represents the smallest kernel area for which the transform is faster than
+   * summing the kernel directly.
+   */
+  private static final int MIN_AREA = 81;
+  /**
+   * This field represents the smallest side of a block.
+   */
+  private static final int MIN_SIZE = 64;
+  /**
+   * This field represents the number of kernel rows.
+   */
+  private final int kernelRows;
+  /**
+   * This field represents the number of kernel columns.
+   */
+  private final int kernelColumns;
+  /**
+   * This field represents the side of each block, a power of two.
+   */
+  private final int size;
+  /**
+   * This field represents the number of output rows computed by each block.
+   */
+  private final int tileRows;
+  /**
+   * This field represents the number of output columns computed by each block.
+   */
+  private final int tileColumns;
+  /**
+   * This field represents the real part of the transform of the kernel, divided by the number of
+   * values in a block so that the inverse transform needs no scaling.
+   */
+  private final double[][] kernelRe;
+  /**
+   * This field represents the imaginary part of the transform of the kernel, scaled the same way.
+   */
+  private final double[][] kernelIm;
+  /**
+   * This field represents the cosines used by a transform of one row or column of a block.
+   */
+  private final double[] cos;
+  /**
+   * This field represents the sines used by a transform of one row or column of a block.
+   */
+  private final double[] sin;
+  /**
+   * This field represents how pixels beyond the edge of the image are filled in.
+   */
+  private final ConvolutionEngine.BorderMode border;
+
+  /**
+   * This constructs a convolution by transform with the given kernel. The kernel is centred on
+   * each pixel in the same way as the convolution engine.
+   *
+   * @param kernel the kernel, with an odd number of rows and an odd number of columns.
+   * @param border how pixels beyond the edge of the image are filled in.
+   * @throws IllegalArgumentException if the kernel is ragged or has an even size.
+   */
+  public FftConvolution(double[][] kernel, ConvolutionEngine.BorderMode border) {
+    if (kernel.length % 2 == 0 || kernel[0].length % 2 == 0) {
+      throw new IllegalArgumentException("The kernel must have an odd number of rows and "
+              + "columns.");
+    }
+    this.kernelRows = kernel.length;
+    this.kernelColumns = kernel[0].length;
+    this.size = Math.max(MIN_SIZE, nextPowerOfTwo(4 * Math.max(kernelRows, kernelColumns)));
+    this.tileRows = size - kernelRows + 1;
+    this.tileColumns = size - kernelColumns + 1;
+    this.border = border;
+    this.cos = new double[size / 2];
+    this.sin = new double[size / 2];
+    for (int i = 0; i < size / 2; i++) {
+      cos[i] = Math.cos(2 * Math.PI * i / size);
+      sin[i] = Math.sin(2 * Math.PI * i / size);
+    }
+    this.kernelRe = new double[size][size];
+    this.kernelIm = new double[size][size];
+    double scale = 1.0 / ((double) size * size);
+    for (int c = 0; c < kernelRows; c++) {
+      if (kernel[c].length != kernelColumns) {
+        throw new IllegalArgumentException("Every row of the kernel must be the same length.");
+      }
+      for (int d = 0; d < kernelColumns; d++) {
+        kernelRe[Math.floorMod(-c, size)][Math.floorMod(-d, size)] = kernel[c][d] * scale;
+      }
+    }
+    transform(kernelRe, kernelIm, false);
+  }
+
+  /**
+   * This method checks whether a kernel is large enough that convolving by transform is faster
+   * than summing the kernel at every pixel.
+   *
+   * @param kernel the kernel.
+   * @return true if the transform should be used.
+   */
+  public static boolean isPreferred(double[][] kernel) {
+    return kernel.length * kernel[0].length >= MIN_AREA;
+  }
+
+  /**
+   * This method convolves the source buffer and returns the result in a new buffer with the same
+   * layout. The source buffer is not changed. Rows of tiles are split into bands that are
+   * convolved at the same time, and since the tiles do not move with the bands the result is the
+   * same at any parallelism.
+   *
+   * @param source the pixels to convolve.
+   * @return the convolved pixels.
+   */
+  public PixelBuffer apply(PixelBuffer source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    PixelBuffer destination = source.create(width, height);
+    if (width == 0 || height == 0) {
+      return destination;
+    }
+    int tilesDown = (height + tileRows - 1) / tileRows;
+    RowBands.run(tilesDown, 1, (from, to) -> {
+      int[][] input = new int[size][width];
+      boolean[] black = new boolean[size];
+      int[][] output = new int[tileRows][width];
+      double[][] redGreenRe = new double[size][size];
+      double[][] redGreenIm = new double[size][size];
+      double[][] blueRe = new double[size][size];
+      double[][] blueIm = new double[size][size];
+      for (int tile = from; tile < to; tile++) {
+        int top = tile * tileRows;
+        int rows = Math.min(tileRows, height - top);
+        for (int r = 0; r < rows + kernelRows - 1; r++) {
+          int sourceRow = border.map(top - kernelRows / 2 + r, height);
+          black[r] = sourceRow < 0;
+          if (!black[r]) {
+            source.getRow(sourceRow, input[r]);
+          }
+        }
+        for (int left = 0; left < width; left += tileColumns) {
+          int columns = Math.min(tileColumns, width - left);
+          fillBlocks(input, black, rows, left, columns, width, redGreenRe, redGreenIm, blueRe,
+                  blueIm);
+          transform(redGreenRe, redGreenIm, false);
+          transform(blueRe, blueIm, false);
+          multiplyByKernel(redGreenRe, redGreenIm);
+          multiplyByKernel(blueRe, blueIm);
+          transform(redGreenRe, redGreenIm, true);
+          transform(blueRe, blueIm, true);
+          for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+              output[y][left + x] = (round(redGreenRe[y][x]) << 16)
+                      | (round(redGreenIm[y][x]) << 8) | round(blueRe[y][x]);
+            }
+          }
+        }
+        for (int y = 0; y < rows; y++) {
+          destination.setRow(top + y, output[y]);
+        }
+      }
+    });
+    return destination;
+  }
+
+  /**
+   * This is a helper method that copies the pixels under one tile, with its margin, into the two
+   * blocks that are transformed. Values past the margin are set to zero.
+   *
+   * @param input      the packed rgb rows under the row of tiles, margin included.
+   * @param black      whether each of those rows is black because of the border mode.
+   * @param rows       the number of output rows in the tile.
+   * @param left       the first output column of the tile.
+   * @param columns    the number of output columns in the tile.
+   * @param width      the width of the image.
+   * @param redGreenRe the block that holds red.
+   * @param redGreenIm the block that holds green.
+   * @param blueRe     the block that holds blue.
+   * @param blueIm     the block that is set to zero alongside blue.
+   */
+  private void fillBlocks(int[][] input, boolean[] black, int rows, int left, int columns,
+                          int width, double[][] redGreenRe, double[][] redGreenIm,
+                          double[][] blueRe, double[][] blueIm) {
+    int usedRows = rows + kernelRows - 1;
+    int usedColumns = columns + kernelColumns - 1;
+    for (int r = 0; r < size; r++) {
+      double[] red = redGreenRe[r];
+      double[] green = redGreenIm[r];
+      double[] blue = blueRe[r];
+      Arrays.fill(blueIm[r], 0);
+      for (int c = 0; c < size; c++) {
+        int rgb = 0;
+        if (r < usedRows && c < usedColumns && !black[r]) {
+          int sourceColumn = border.map(left - kernelColumns / 2 + c, width);
+          rgb = sourceColumn < 0 ? 0 : input[r][sourceColumn];
+        }
+        red[c] = (rgb >> 16) & 0xFF;
+        green[c] = (rgb >> 8) & 0xFF;
+        blue[c] = rgb & 0xFF;
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that multiplies a transformed block by the transform of the kernel.
+   *
+   * @param re the real part of the block.
+   * @param im the imaginary part of the block.
+   */
+  private void multiplyByKernel(double[][] re, double[][] im) {
+    for (int r = 0; r < size; r++) {
+      double[] blockRe = re[r];
+      double[] blockIm = im[r];
+      double[] filterRe = kernelRe[r];
+      double[] filterIm = kernelIm[r];
+      for (int c = 0; c < size; c++) {
+        double real = blockRe[c] * filterRe[c] - blockIm[c] * filterIm[c];
+        blockIm[c] = blockRe[c] * filterIm[c] + blockIm[c] * filterRe[c];
+        blockRe[c] = real;
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that transforms a block in place, first along every row and then down
+   * every column. The inverse transform is not scaled.
+   *
+   * @param re      the real part of the block.
+   * @param im      the imaginary part of the block.
+   * @param inverse true for the inverse transform.
+   */
+  private void transform(double[][] re, double[][] im, boolean inverse) {
+    for (int r = 0; r < size; r++) {
+      transform(re[r], im[r], inverse);
+    }
+    double[] columnRe = new double[size];
+    double[] columnIm = new double[size];
+    for (int c = 0; c < size; c++) {
+      for (int r = 0; r < size; r++) {
+        columnRe[r] = re[r][c];
+        columnIm[r] = im[r][c];
+      }
+      transform(columnRe, columnIm, inverse);
+      for (int r = 0; r < size; r++) {
+        re[r][c] = columnRe[r];
+        im[r][c] = columnIm[r];
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that transforms one row or column in place with the iterative radix
+   * two algorithm. The inverse transform is not scaled.
+   *
+   * @param re      the real parts.
+   * @param im      the imaginary parts.
+   * @param inverse true for the inverse transform.
+   */
+  private void transform(double[] re, double[] im, boolean inverse) {
+    int n = re.length;
+    for (int i = 1, j = 0; i < n; i++) {
+      int bit = n >> 1;
+      for (; (j & bit) != 0; bit >>= 1) {
+        j ^= bit;
+      }
+      j ^= bit;
+      if (i < j) {
+        double t = re[i];
+        re[i] = re[j];
+        re[j] = t;
+        t = im[i];
+        im[i] = im[j];
+        im[j] = t;
+      }
+    }
+    double sign = inverse ? 1 : -1;
+    for (int length = 2; length <= n; length <<= 1) {
+      int half = length >> 1;
+      int step = n / length;
+      for (int start = 0; start < n; start += length) {
+        for (int k = 0; k < half; k++) {
+          double wr = cos[k * step];
+          double wi = sign * sin[k * step];
+          int a = start + k;
+          int b = a + half;
+          double xr = re[b] * wr - im[b] * wi;
+          double xi = re[b] * wi + im[b] * wr;
+          re[b] = re[a] - xr;
+          im[b] = im[a] - xi;
+          re[a] += xr;
+          im[a] += xi;
+        }
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that rounds a convolved value to the nearest integer and clamps it to
+   * 0 to 255.
+   *
+   * @param value the value to round.
+   * @return the rounded and clamped value.
+   */
+  private static int round(double value) {
+    return PixelBuffer.clamp((int) Math.floor(value + 0.5));
+  }
+
+  /**
+   * This is a helper method that gets the smallest power of two at least as large as a number.
+   *
+   * @param value the number, at least one.
+   * @return the power of two.
+   */
+  private static int nextPowerOfTwo(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+}
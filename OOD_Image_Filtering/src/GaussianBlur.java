@@ -0,0 +1,85 @@
+/**
+ * This class represents a Gaussian blur of any strength. The blur is separable, so instead of
+ * running a square kernel over every pixel it runs a one dimensional kernel across each row and
+ * then down each column. That makes the cost per pixel grow with the radius of the kernel rather
+ * than with its area. The passes themselves are run by the separable path of the convolution
+ * engine.
+ */
+public class GaussianBlur implements ScanlineStage {
+  /**
+   * This field represents the largest standard deviation a blur may have. The kernel reaches three
+   * standard deviations each way, so this keeps it to 1024 pixels on each side of its centre. The
+   * convolution holds one row per tap of the kernel, which is what limits it.
+   */
+  public static final double MAX_SIGMA = 1024 / 3.0;
+
+  /**
+   * This field represents the weights of the one dimensional kernel. They add up to one.
+   */
+  private final double[] weights;
+
+  /**
+   * This constructs a Gaussian blur with the given standard deviation. The kernel reaches three
+   * standard deviations from its centre on each side.
+   *
+   * @param sigma the standard deviation of the blur in pixels.
+   * @throws IllegalArgumentException if sigma is not positive or is above {@link #MAX_SIGMA}.
+   */
+  public GaussianBlur(double sigma) {
+    if (!isValidSigma(sigma)) {
+      throw new IllegalArgumentException("Sigma must be positive and at most " + MAX_SIGMA + ".");
+    }
+    int radius = (int) Math.ceil(3 * sigma);
+    this.weights = new double[2 * radius + 1];
+    double total = 0;
+    double[] exact = new double[weights.length];
+    for (int i = -radius; i <= radius; i++) {
+      exact[i + radius] = Math.exp(-((double) i * i) / (2 * sigma * sigma));
+      total += exact[i + radius];
+    }
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = exact[i] / total;
+    }
+  }
+
+  /**
+   * This method checks whether a blur can be made with the given standard deviation: it must be
+   * positive and at most {@link #MAX_SIGMA}, which rules out infinity and NaN.
+   *
+   * @param sigma the standard deviation to check.
+   * @return true if a blur can be made with it.
+   */
+  public static boolean isValidSigma(double sigma) {
+    return sigma > 0 && sigma <= MAX_SIGMA;
+  }
+
+  /**
+   * This method blurs the given image and returns the result in a new buffer with the same layout.
+   * Pixels beyond the edge of the image take the value of the nearest edge pixel.
+   *
+   * @param image the pixels to blur.
+   * @return the blurred pixels.
+   */
+  public PixelBuffer apply(PixelBuffer image) {
+    return getEngine().apply(image);
+  }
+
+  @Override
+  public int getReach() {
+    return weights.length / 2;
+  }
+
+  @Override
+  public Cursor open(PixelBuffer source) {
+    return getEngine().open(source);
+  }
+
+  /**
+   * This is a helper method that makes the separable convolution that runs this blur.
+   *
+   * @return the convolution.
+   */
+  private ConvolutionEngine getEngine() {
+    return ConvolutionEngine.separable(weights, weights, ConvolutionEngine.BorderMode.CLAMP);
+  }
+}
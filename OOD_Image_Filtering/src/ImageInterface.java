@@ -7,21 +7,52 @@
 
 public interface ImageInterface {
   /**
-   * This method applies a blur kernel to this image. It calls the applyKernel method which iterates
-   * through every pixel in this image, takes the convolution of the kernel and that pixel, and
-   * updates the value of that pixel in this image. It then calls the clamp method to clamp all
-   * values of the pixel to be between 0 and 255.
+   * This method applies a blur kernel to this image. It hands the kernel to the convolution engine,
+   * which takes the convolution of the kernel and every pixel in this image and stores the new
+   * values clamped to be between 0 and 255.
    */
   void blurImage();
 
   /**
-   * This method applies a sharpened kernel to this image, calls applyKernel method which iterates
-   * through every pixel in this image, takes the convolution of the kernel and that pixel, and
-   * updates the value of that pixel in this image. It then calls the clamp method to clamp all
-   * values of the pixel to be between 0 and 255.
+   * This method applies a Gaussian blur of the given strength to this image. The blur is run as
+   * one pass across the rows and one pass down the columns, so its cost grows with the radius of
+   * the blur rather than with its area. Pixels beyond the edge take the value of the nearest edge
+   * pixel.
+   *
+   * @param sigma the standard deviation of the blur in pixels.
+   * @throws IllegalArgumentException if sigma is not positive or is above
+   *                                  {@link GaussianBlur#MAX_SIGMA}.
+   */
+  void blurImage(double sigma);
+
+  /**
+   * This method applies a sharpened kernel to this image. It hands the kernel to the convolution
+   * engine, which takes the convolution of the kernel and every pixel in this image and stores the
+   * new values clamped to be between 0 and 255.
    */
   void sharpenImage();
 
+  /**
+   * This method convolves this image with a kernel given by the user. The kernel is centred on
+   * each pixel and pixels beyond the edge take the value of the nearest edge pixel. Small kernels
+   * are summed directly at every pixel, and large ones are applied with fast Fourier transforms,
+   * which gives the same result much faster.
+   *
+   * @param kernel the kernel, with an odd number of rows and an odd number of columns.
+   * @throws IllegalArgumentException if the kernel is ragged or has an even size.
+   */
+  void convolve(double[][] kernel);
+
+  /**
+   * This method applies a box blur of the given radius to this image. Each pixel becomes the mean
+   * of the square of pixels reaching the radius on every side of it, cut off at the edges of the
+   * image. The cost per pixel is the same whatever the radius.
+   *
+   * @param radius the number of pixels the box reaches on each side of its centre.
+   * @throws IllegalArgumentException if the radius is negative.
+   */
+  void boxBlur(int radius);
+
   /**
    * This method converts this image into a grey scale image. It transforms the color by multiplying
    * the RGB values by a standard grey scale formula. It resets the RGB values for every pixel with
@@ -37,6 +68,25 @@ public interface ImageInterface {
 
   void sepiaTone();
 
+  /**
+   * This method applies a colour matrix to this image. Each channel of every pixel becomes the sum
+   * of the old red, green and blue values multiplied by one row of the matrix, plus the offset in
+   * the fourth column if there is one. The new values are rounded down and clamped to be between 0
+   * and 255.
+   *
+   * @param matrix the matrix with three rows, red first, of three or four values each.
+   * @throws IllegalArgumentException if the matrix is the wrong shape or its values are too large.
+   */
+  void colorMatrix(double[][] matrix);
+
+  /**
+   * This method applies an operation that changes each pixel using only its old value, such as a
+   * number of colour filters fused together, in one pass over this image.
+   *
+   * @param op the operation to apply.
+   */
+  void applyPointwise(PointwiseOp op);
+
   /**
    * This method sets this image to a user specified width and height. It then puts horizontal
    * stripes with ROYGBIV RGB values respectively. Each stripe is of the same height, and the last
@@ -106,6 +156,16 @@ public interface ImageInterface {
    */
   void dither();
 
+  /**
+   * This method converts this image into a black and white image with an ordered dither. It sets
+   * the image to gray scale and compares each pixel with a Bayer threshold matrix tiled across the
+   * image, so every pixel is worked out on its own.
+   *
+   * @param matrixSize the side of the threshold matrix, 2, 4 or 8.
+   * @throws IllegalArgumentException if the side is not 2, 4 or 8.
+   */
+  void orderedDither(int matrixSize);
+
   /**
    * This method converts this image into a mosaic image. The user specifies the number of random
    * seeds within the image. The method then assigns each pixel of this image to the closest seed
@@ -114,12 +174,43 @@ public interface ImageInterface {
   void mosaic(int seeds);
 
   /**
-   * This is a getter method that gets the int 3D array representing this image.
+   * This method converts this image into a mosaic image whose seeds are drawn from the given
+   * number, so the same number always places the seeds in the same pixels for images of the same
+   * size. The assignment of pixels to seeds is shared between images of the same size given the
+   * same seeds, so only the averages are worked out again.
+   *
+   * @param seeds      the number of seeds.
+   * @param randomSeed the number the seeds are drawn from.
+   * @throws IllegalArgumentException if the number of seeds is not positive.
+   */
+  void mosaic(int seeds, long randomSeed);
+
+  /**
+   * This method takes a snapshot of this image. The snapshot is an independent image: operations
+   * on this image do not change it and operations on it do not change this image. Images kept in
+   * memory share their unchanged pixels with their snapshots, so taking one is cheap. Images kept
+   * outside of the heap, in a mapped scratch file or in tiles, are copied into a new image of the
+   * same kind, which owns its own scratch file and must be closed once it is no longer needed.
+   *
+   * @return a snapshot of this image.
+   */
+  ImageInterface snapshot();
+
+  /**
+   * This is a getter method that gets the int 3D array representing this image. The array is
+   * converted from the pixel buffer of this image, so it is a copy rather than the storage itself.
    *
    * @return int 3D array that represents this image.
    */
   int[][][] getMyImage();
 
+  /**
+   * This is a getter method that gets the pixel buffer that stores this image.
+   *
+   * @return the pixel buffer of this image.
+   */
+  PixelBuffer getPixelBuffer();
+
   /**
    * This is a getter method that gets this image's width.
    *
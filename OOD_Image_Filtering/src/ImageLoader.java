@@ -0,0 +1,152 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * This class represents an image file opened for reading. Opening it only reads enough of the
+ * file to find a reader for its format, and the width and height are then read from the header
+ * without decoding any pixels, so the caller can choose the pixel buffer before any pixels are
+ * decoded. The image readers only decode into a BufferedImage, so the pixels are then decoded into
+ * one and copied into the buffer with RasterConverter, either the whole image in one decode or a
+ * strip of rows at a time. The file is closed when the loader is, so it should be used in a
+ * try-with-resources statement.
+ */
+public class ImageLoader implements Closeable {
+  /**
+   * This field represents the reader for the format of the file.
+   */
+  private final ImageReader reader;
+  /**
+   * This field represents the stream the reader reads the file from.
+   */
+  private final ImageInputStream stream;
+
+  /**
+   * This constructs a loader for an image file. Only the start of the file is read, to find a
+   * reader for its format.
+   *
+   * @param file the image file to read.
+   * @throws IOException if the file cannot be opened or no reader supports its format.
+   */
+  public ImageLoader(File file) throws IOException {
+    ImageInputStream input = ImageIO.createImageInputStream(file);
+    if (input == null) {
+      throw new IOException("Cannot open " + file);
+    }
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+    if (!readers.hasNext()) {
+      input.close();
+      throw new IOException("No reader for " + file);
+    }
+    this.stream = input;
+    this.reader = readers.next();
+    this.reader.setInput(input, false, true);
+  }
+
+  /**
+   * This method gets the width of the image from the header of the file, without decoding any
+   * pixels.
+   *
+   * @return the width of the image.
+   * @throws IOException if the header cannot be read.
+   */
+  public int getWidth() throws IOException {
+    return reader.getWidth(0);
+  }
+
+  /**
+   * This method gets the height of the image from the header of the file, without decoding any
+   * pixels.
+   *
+   * @return the height of the image.
+   * @throws IOException if the header cannot be read.
+   */
+  public int getHeight() throws IOException {
+    return reader.getHeight(0);
+  }
+
+  /**
+   * This method decodes the pixels of the image.
+   *
+   * @return the decoded image.
+   * @throws IOException if the pixels cannot be decoded.
+   */
+  public BufferedImage read() throws IOException {
+    return reader.read(0);
+  }
+
+  /**
+   * This method decodes a strip of whole rows of the image. Readers that can find a row without
+   * decoding the ones above it, such as the TIFF reader, only decode the strip.
+   *
+   * @param top  the first row of the strip.
+   * @param rows the number of rows in the strip.
+   * @return the decoded strip, as wide as the image and the given number of rows high.
+   * @throws IOException if the pixels cannot be decoded.
+   */
+  public BufferedImage readRows(int top, int rows) throws IOException {
+    ImageReadParam param = reader.getDefaultReadParam();
+    param.setSourceRegion(new Rectangle(0, top, getWidth(), rows));
+    return reader.read(0, param);
+  }
+
+  /**
+   * This method decodes the pixels of the image into a pixel buffer of the same size, one row at
+   * a time.
+   *
+   * @param target the pixel buffer to fill.
+   * @throws IOException              if the pixels cannot be decoded.
+   * @throws IllegalArgumentException if the buffer is not the size of the image.
+   */
+  public void readInto(PixelBuffer target) throws IOException {
+    readInto(target, Long.MAX_VALUE);
+  }
+
+  /**
+   * This method decodes the pixels of the image into a pixel buffer of the same size, in strips
+   * of whole rows that take at most the given number of bytes at four bytes a pixel, so an image
+   * larger than the heap can be decoded into a buffer kept outside of it. Each strip is copied
+   * into the buffer and let go before the next one is decoded. An image that fits in one strip
+   * is decoded in one go. The TIFF reader only decodes the rows of each strip, but the JPEG and
+   * PNG readers decode from the top of the file to reach a strip, so more strips cost those files
+   * more decoding.
+   *
+   * @param target     the pixel buffer to fill.
+   * @param stripBytes the most bytes of decoded pixels held at once.
+   * @throws IOException              if the pixels cannot be decoded.
+   * @throws IllegalArgumentException if the buffer is not the size of the image.
+   */
+  public void readInto(PixelBuffer target, long stripBytes) throws IOException {
+    int width = getWidth();
+    int height = getHeight();
+    if (target.getWidth() != width || target.getHeight() != height) {
+      throw new IllegalArgumentException("The buffer is not the size of the image.");
+    }
+    int stripRows = (int) Math.max(1, Math.min(height, stripBytes / (4L * Math.max(1, width))));
+    if (stripRows == height) {
+      ImageUtil.copyPixels(read(), target);
+      return;
+    }
+    BufferedImage strip;
+    for (int top = 0; top < height; top += stripRows) {
+      //The old strip is let go first, so two strips are never held at once.
+      strip = null;
+      strip = readRows(top, Math.min(stripRows, height - top));
+      RasterConverter.toPixels(strip, target, top);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.dispose();
+    stream.close();
+  }
+}
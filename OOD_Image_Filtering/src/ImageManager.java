@@ -1,4 +1,5 @@
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 
 /**
@@ -7,22 +8,78 @@ import java.io.IOException;
  * once from within the controler.
  */
 public class ImageManager implements ImageManagerInterface {
+  /**
+   * This field represents the number of pixels above which a loaded image is stored in a memory
+   * mapped scratch file instead of on the heap.
+   */
+  private final long mapThreshold;
+
+  /**
+   * This field represents the number of pixels above which a loaded image is split into tiles
+   * that are decoded on first use.
+   */
+  private final long tileThreshold;
+
+  /**
+   * This field represents the most bytes of decoded pixels held on the heap at once while an
+   * image is loaded into a memory mapped buffer. It is read from the image.loadStripBytes system
+   * property, and defaults to an eighth of the largest heap, but at least 16 megabytes.
+   */
+  private final long stripBytes = Long.getLong("image.loadStripBytes",
+          Math.max(16L << 20, Runtime.getRuntime().maxMemory() / 8));
+
+  /**
+   * This constructs the image manager. The number of pixels above which loaded images are memory
+   * mapped is read from the image.mapThreshold system property, and defaults to 64 million. The
+   * number above which they are tiled is read from image.tileThreshold, and defaults to 256
+   * million. Tiles are image.tileSize pixels square, 256 by default, and at most
+   * image.tileCacheBytes bytes of them, 256 megabytes by default, are kept in memory.
+   */
+  public ImageManager() {
+    this(Long.getLong("image.mapThreshold", 64_000_000L),
+            Long.getLong("image.tileThreshold", 256_000_000L));
+  }
+
+  /**
+   * This constructs the image manager with the given thresholds for memory mapped and tiled
+   * images.
+   *
+   * @param mapThreshold  the number of pixels above which a loaded image is memory mapped.
+   * @param tileThreshold the number of pixels above which a loaded image is tiled.
+   */
+  public ImageManager(long mapThreshold, long tileThreshold) {
+    this.mapThreshold = mapThreshold;
+    this.tileThreshold = tileThreshold;
+  }
 
   @Override
   public ImageInterface loadImage(String fileName) throws IOException {
-    ImageInterface imageObject = null;
-    int[][][] myImage = ImageUtil.readImage(fileName);
-    int myImageWidth = ImageUtil.getWidth(fileName);
-    int myImageHeight = ImageUtil.getHeight(fileName);
-    imageObject = new Image(myImage, myImageWidth, myImageHeight);
-    return imageObject;
+    if (NetpbmIO.isNetpbm(fileName)) {
+      NetpbmIO file = NetpbmIO.open(new File(fileName));
+      return load(file.getWidth(), file.getHeight(), (target, strip) -> file.readInto(target));
+    }
+    try (ImageLoader loader = new ImageLoader(new File(fileName))) {
+      int width = loader.getWidth();
+      int height = loader.getHeight();
+      if ((long) width * height > tileThreshold) {
+        return new TiledImage(TiledPixelBuffer.open(new File(fileName),
+                Integer.getInteger("image.tileSize", 256),
+                Long.getLong("image.tileCacheBytes", 256L << 20)));
+      }
+      return load(width, height, loader::readInto);
+    }
+  }
+
+  @Override
+  public ImageInterface streamImage(String fileName) throws IOException {
+    return new StreamedImage(fileName, this);
   }
 
   @Override
   public ImageInterface createImage() {
     try {
-      int[][][] myImage = new int[0][0][0];
-      ImageInterface imageObject = new Image(myImage, 0, 0);
+      PixelBuffer myImage = PixelLayout.getDefault().allocate(0, 0);
+      ImageInterface imageObject = new Image(myImage);
       return imageObject;
     } catch (NullPointerException e) {
       return null;
@@ -32,36 +89,76 @@ public class ImageManager implements ImageManagerInterface {
   @Override
   public void saveImage(ImageInterface imageObject, String filePath, String saveAsFileName)
           throws IOException {
-    ImageUtil.writeImage(imageObject.getMyImage(), imageObject.getMyImageWidth(),
-            imageObject.getMyImageHeight(),
-            "" + filePath + "/" + saveAsFileName);
+    String fileName = "" + filePath + "/" + saveAsFileName;
+    if (imageObject instanceof StreamedImage && ((StreamedImage) imageObject).canStream(fileName)) {
+      ((StreamedImage) imageObject).stream(fileName);
+      return;
+    }
+    ImageUtil.writeImage(imageObject.getPixelBuffer(), fileName);
   }
 
   @Override
   public BufferedImage displayImage(int[][][] rgb, int width, int height) {
     try {
-      BufferedImage output = new BufferedImage(
-              width,
-              height,
-              BufferedImage.TYPE_INT_RGB);
+      return displayImage(PackedPixelBuffer.fromArray(rgb, width, height));
+    } catch (NegativeArraySizeException e) {
+      return null;
+    }
+  }
 
-      for (int i = 0; i < height; i++) {
-        for (int j = 0; j < width; j++) {
-          int r = rgb[i][j][0];
-          int g = rgb[i][j][1];
-          int b = rgb[i][j][2];
+  @Override
+  public double[][] loadKernel(String fileName) throws IOException {
+    return ImageUtil.readKernel(fileName);
+  }
 
-          //color is stored in 1 integer, with the 4 bytes storing ARGB in that
-          //order. Each of r,g,b are stored in 8 bits (hence between 0 and 255).
-          // So we put them all in one integer by using bit-shifting << as below
-          int color = (r << 16) + (g << 8) + b;
-          output.setRGB(j, i, color);
-        }
-      }
-      return output;
+  @Override
+  public BufferedImage displayImage(PixelBuffer buffer) {
+    try {
+      return ImageUtil.toBufferedImage(buffer);
     } catch (IllegalArgumentException e) {
       return null;
     }
   }
-}
 
+  /**
+   * This is a helper method that makes an image of the given size and fills it from a file. The
+   * image is memory mapped if it has more pixels than the map threshold, and the mapping is
+   * closed again if the file cannot be read. A mapped image is read in strips of rows, so the
+   * image never has to fit in the heap.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param source the file the pixels are read from.
+   * @return the loaded image.
+   * @throws IOException if the file cannot be read.
+   */
+  private ImageInterface load(int width, int height, PixelSource source) throws IOException {
+    if ((long) width * height > mapThreshold) {
+      MappedPixelBuffer myImage = new MappedPixelBuffer(width, height);
+      try {
+        source.readInto(myImage, stripBytes);
+      } catch (IOException | RuntimeException e) {
+        myImage.close();
+        throw e;
+      }
+      return new MappedImage(myImage);
+    }
+    PixelBuffer myImage = PixelLayout.getDefault().allocate(width, height);
+    source.readInto(myImage, Long.MAX_VALUE);
+    return new Image(myImage);
+  }
+
+  /**
+   * This interface represents a file that pixels are read from into a buffer of its size.
+   */
+  private interface PixelSource {
+    /**
+     * This method reads the pixels of the file into a buffer.
+     *
+     * @param target     the buffer to fill.
+     * @param stripBytes the most bytes of decoded pixels to hold on the heap at once.
+     * @throws IOException if the file cannot be read.
+     */
+    void readInto(PixelBuffer target, long stripBytes) throws IOException;
+  }
+}
@@ -20,6 +20,28 @@ public interface ImageManagerInterface {
    */
   ImageInterface loadImage(String fileName) throws IOException;
 
+  /**
+   * This method opens an image file to be streamed rather than loaded. Only the size of the
+   * image is read. Filters that work on a few rows at a time are held back and run as the file is
+   * streamed into the file it is saved to, and anything else loads the file whole first.
+   *
+   * @param fileName the image file to be streamed.
+   * @return the ImageInterface object that represents the streamed image.
+   * @throws IOException if the file cannot be read.
+   */
+  ImageInterface streamImage(String fileName) throws IOException;
+
+  /**
+   * This method loads a convolution kernel from a text file with one row of numbers per line.
+   *
+   * @param fileName the text file to be read.
+   * @return the kernel, with rows as the first index.
+   * @throws IOException              if the file cannot be read.
+   * @throws IllegalArgumentException if the file does not hold a kernel with an odd number of rows
+   *                                  and columns.
+   */
+  double[][] loadKernel(String fileName) throws IOException;
+
   /**
    * This method creates an empty image. This is called when the user gives commands that don't
    * require a previously loaded image. The purpose of this method is to ensure that the model only
@@ -30,7 +52,9 @@ public interface ImageManagerInterface {
   ImageInterface createImage();
 
   /**
-   * This method saves a give image to the specified file name.
+   * This method saves a give image to the specified file name. The rows of the image are handed
+   * to the encoder one at a time, so a generated image is saved without ever being held in memory
+   * as pixels. A streamed image is filtered as it is saved, when the format of the file allows.
    *
    * @param imageObject    The ImageInterace object to be saved.
    * @param filePath       the path of the file to be saved.
@@ -49,4 +73,13 @@ public interface ImageManagerInterface {
    * @return the buffered image of this model.
    */
   BufferedImage displayImage(int[][][] rgb, int width, int height);
+
+  /**
+   * This method transforms the pixel buffer of the model into a buffered image. It is a utility
+   * method used when controller is sending data from the model to the view.
+   *
+   * @param buffer the pixel buffer of this model.
+   * @return the buffered image of this model.
+   */
+  BufferedImage displayImage(PixelBuffer buffer);
 }
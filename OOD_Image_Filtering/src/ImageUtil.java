@@ -1,8 +1,12 @@
-import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.io.FileInputStream;
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import javax.imageio.ImageIO;
 
@@ -19,26 +23,53 @@ public class ImageUtil {
    * @return the image as a 3D array of integer values
    */
   public static int[][][] readImage(String filename) throws IOException {
-    BufferedImage input;
-
-    input = ImageIO.read(new FileInputStream(filename));
+    return readPixels(filename).toArray();
+  }
 
-    int[][][] result = new int[input.getHeight()][input.getWidth()][3];
+  /**
+   * Read an image file and return the contents as a pixel buffer with the default layout.
+   *
+   * @param filename the path of the file. Look at the ImageIO documentation to see which file
+   *                 formats are supported.
+   * @return the image as a pixel buffer
+   * @throws IOException if the file is not found
+   */
+  public static PixelBuffer readPixels(String filename) throws IOException {
+    try (ImageLoader loader = new ImageLoader(new File(filename))) {
+      PixelBuffer result = PixelLayout.getDefault().allocate(loader.getWidth(),
+              loader.getHeight());
+      loader.readInto(result);
+      return result;
+    }
+  }
 
-    for (int i = 0; i < input.getHeight(); i++) {
-      for (int j = 0; j < input.getWidth(); j++) {
-        int color = input.getRGB(j, i);
-        Color c = new Color(color);
-        result[i][j][0] = c.getRed();
-        result[i][j][1] = c.getGreen();
-        result[i][j][2] = c.getBlue();
-      }
+  /**
+   * Read an image file into a buffered image.
+   *
+   * @param filename the path of the file. Look at the ImageIO documentation to see which file
+   *                 formats are supported.
+   * @return the decoded image
+   * @throws IOException if the file is not found
+   */
+  public static BufferedImage readBufferedImage(String filename) throws IOException {
+    try (ImageLoader loader = new ImageLoader(new File(filename))) {
+      return loader.read();
     }
-    return result;
   }
 
   /**
-   * Convenience function to get the width of an image.
+   * Copy the pixels of a buffered image into a pixel buffer of the same size, straight from the
+   * array behind the image when its type allows it.
+   *
+   * @param input  the image to copy from
+   * @param result the pixel buffer to copy into
+   */
+  public static void copyPixels(BufferedImage input, PixelBuffer result) {
+    RasterConverter.toPixels(input, result);
+  }
+
+  /**
+   * Convenience function to get the width of an image. Only the header of the file is read.
    *
    * @param filename the full path of the image file. Look at the ImageIO class to see which file
    *                 formats are supported
@@ -47,15 +78,13 @@ public class ImageUtil {
    */
 
   public static int getWidth(String filename) throws IOException {
-    BufferedImage input;
-
-    input = ImageIO.read(new FileInputStream(filename));
-
-    return input.getWidth();
+    try (ImageLoader loader = new ImageLoader(new File(filename))) {
+      return loader.getWidth();
+    }
   }
 
   /**
-   * Convenience function to get the height of an image.
+   * Convenience function to get the height of an image. Only the header of the file is read.
    *
    * @param filename the full path of the image file. Look at the ImageIO class to see which file
    *                 formats are supported
@@ -63,11 +92,46 @@ public class ImageUtil {
    * @throws IOException if the file is not found
    */
   public static int getHeight(String filename) throws IOException {
-    BufferedImage input;
-
-    input = ImageIO.read(new FileInputStream(filename));
+    try (ImageLoader loader = new ImageLoader(new File(filename))) {
+      return loader.getHeight();
+    }
+  }
 
-    return input.getHeight();
+  /**
+   * Read a convolution kernel from a text file. Each line holds one row of the kernel as numbers
+   * separated by spaces, and blank lines are ignored.
+   *
+   * @param filename the path of the file
+   * @return the kernel, with rows as the first index
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if a value is not a number, or if the kernel is empty, ragged
+   *                                  or does not have an odd number of rows and columns
+   */
+  public static double[][] readKernel(String filename) throws IOException {
+    List<double[]> rows = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        String[] values = line.split("\\s+");
+        double[] row = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+          row[i] = Double.parseDouble(values[i]);
+        }
+        if (!rows.isEmpty() && row.length != rows.get(0).length) {
+          throw new IllegalArgumentException("Every row of the kernel must be the same length.");
+        }
+        rows.add(row);
+      }
+    }
+    if (rows.size() % 2 == 0 || rows.get(0).length % 2 == 0) {
+      throw new IllegalArgumentException("The kernel must have an odd number of rows and "
+              + "columns.");
+    }
+    return rows.toArray(new double[0][]);
   }
 
   /**
@@ -84,26 +148,58 @@ public class ImageUtil {
   public static void writeImage(int[][][] rgb, int width, int height, String
           filename)
           throws IOException {
+    writeImage(PackedPixelBuffer.fromArray(rgb, width, height), filename);
+  }
 
-    BufferedImage output = new BufferedImage(
-            width,
-            height,
-            BufferedImage.TYPE_INT_RGB);
+  /**
+   * Write a pixel buffer to a file in a given format. The rows of the buffer are handed to the
+   * encoder as it asks for them rather than copied into a BufferedImage first, so only about a
+   * row of pixels is held in memory on top of the buffer itself. PPM, PGM, PAM and PNM files are
+   * written by NetpbmIO without an encoder. The JPEG encoder reads the whole image as one raster,
+   * so a JPEG file can only be written from a buffer of at most PixelBufferImage.MAX_WHOLE_PIXELS
+   * pixels; larger buffers are rejected before the file is opened.
+   *
+   * @param buffer   the pixel buffer to write
+   * @param filename the full path of where the image must be stored. This should include the name
+   *                 and extension of the file
+   * @throws IOException if the file cannot be written to the provided path, or the buffer is too
+   *                     large for the format
+   */
+  public static void writeImage(PixelBuffer buffer, String filename) throws IOException {
+    if (NetpbmIO.isNetpbm(filename)) {
+      NetpbmIO.write(buffer, filename, false);
+      return;
+    }
+    String extension = getFormat(filename);
+    String format = extension.toLowerCase(Locale.ROOT);
+    if ((format.equals("jpg") || format.equals("jpeg"))
+            && (long) buffer.getWidth() * buffer.getHeight() > PixelBufferImage.MAX_WHOLE_PIXELS) {
+      throw new IOException("An image of " + buffer.getWidth() + " by " + buffer.getHeight()
+              + " pixels is too large to save as JPEG. Save it as PNG or PPM instead.");
+    }
+    try (FileOutputStream output = new FileOutputStream(filename)) {
+      ImageIO.write(new PixelBufferImage(buffer), extension, output);
+    }
+  }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = rgb[i][j][0];
-        int g = rgb[i][j][1];
-        int b = rgb[i][j][2];
+  /**
+   * Get the format of an image file from its name, which is everything after the first dot.
+   *
+   * @param filename the name of the file
+   * @return the format of the file
+   */
+  public static String getFormat(String filename) {
+    return filename.substring(filename.indexOf(".") + 1);
+  }
 
-        //color is stored in 1 integer, with the 4 bytes storing ARGB in that
-        //order. Each of r,g,b are stored in 8 bits (hence between 0 and 255).
-        // So we put them all in one integer by using bit-shifting << as below
-        int color = (r << 16) + (g << 8) + b;
-        output.setRGB(j, i, color);
-      }
-    }
-    String extension = filename.substring(filename.indexOf(".") + 1);
-    ImageIO.write(output, extension, new FileOutputStream(filename));
+  /**
+   * Convert a pixel buffer into a buffered image of type TYPE_INT_RGB. Pixels are copied a row at
+   * a time straight into the array behind the image.
+   *
+   * @param buffer the pixel buffer to convert
+   * @return the buffered image holding the same pixels
+   */
+  public static BufferedImage toBufferedImage(PixelBuffer buffer) {
+    return RasterConverter.toBufferedImage(buffer);
   }
-}
\ No newline at end of file
+}
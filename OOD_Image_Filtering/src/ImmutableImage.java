@@ -0,0 +1,178 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * This class represents an immutable image. Its pixels are held in a buffer that is never written
+ * to after the image is made. Each operation runs the matching operation of Image on that buffer
+ * and wraps the result. Those operations only read the buffer they are given and write their
+ * result to a new one, so nothing is copied before an operation and the new image shares no
+ * pixels with this one. Nothing writes to this image, which lets any number of threads work from
+ * the same image at the same time without locks.
+ *
+ * <p>The pixels are always held on the heap. An image kept outside of the heap, such as a memory
+ * mapped or tiled one, is copied into a packed buffer when it is frozen, so an immutable image
+ * never owns a scratch file and needs no closing. That limits an immutable image to what a single
+ * int array can hold and to what fits in the heap.
+ *
+ * <p>Only blur, sharpen, gray scale, sepia tone, dither and the unseeded mosaic are offered. The
+ * other operations of ImageInterface, such as the Gaussian blur, convolution, box blur, colour
+ * matrices, ordered dithering, the seeded mosaic and the drawing operations, are reached through
+ * toMutable.
+ */
+public final class ImmutableImage implements ImmutableImageInterface {
+  /**
+   * This field represents the pixels of this image. Nothing writes to this buffer.
+   */
+  private final PixelBuffer pixels;
+
+  /**
+   * This constructs an immutable image that takes ownership of the given buffer. The caller must
+   * not keep a reference to the buffer.
+   *
+   * @param pixels the pixels of this image.
+   */
+  private ImmutableImage(PixelBuffer pixels) {
+    this.pixels = pixels;
+  }
+
+  /**
+   * This method makes an immutable image holding the current pixels of a mutable image. It takes
+   * a snapshot of the image, so later changes to the mutable image do not show in the result.
+   * Pixels kept outside of the heap are copied into a new packed buffer instead.
+   *
+   * @param image the image to freeze.
+   * @return the immutable image.
+   * @throws IllegalArgumentException if the image is kept outside of the heap and has more
+   *                                  pixels than an int array can hold.
+   */
+  public static ImmutableImage of(ImageInterface image) {
+    PixelBuffer source = image.getPixelBuffer();
+    if (!(source instanceof Closeable)) {
+      return new ImmutableImage(image.snapshot().getPixelBuffer());
+    }
+    return new ImmutableImage(toHeap(source));
+  }
+
+  @Override
+  public ImmutableImageInterface blur() {
+    return apply(ImageInterface::blurImage);
+  }
+
+  @Override
+  public ImmutableImageInterface sharpen() {
+    return apply(ImageInterface::sharpenImage);
+  }
+
+  @Override
+  public ImmutableImageInterface grayScale() {
+    return apply(ImageInterface::grayScale);
+  }
+
+  @Override
+  public ImmutableImageInterface sepiaTone() {
+    return apply(ImageInterface::sepiaTone);
+  }
+
+  @Override
+  public ImmutableImageInterface dither() {
+    return apply(ImageInterface::dither);
+  }
+
+  @Override
+  public ImmutableImageInterface mosaic(int seeds) {
+    return apply(image -> image.mosaic(seeds));
+  }
+
+  @Override
+  public ImageInterface toMutable() {
+    return new Image(fork());
+  }
+
+  @Override
+  public int getRGB(int row, int col) {
+    return pixels.getRGB(row, col);
+  }
+
+  @Override
+  public void getRow(int row, int[] rgb) {
+    pixels.getRow(row, rgb);
+  }
+
+  @Override
+  public int[][][] getMyImage() {
+    return pixels.toArray();
+  }
+
+  @Override
+  public int getMyImageWidth() {
+    return pixels.getWidth();
+  }
+
+  @Override
+  public int getMyImageHeight() {
+    return pixels.getHeight();
+  }
+
+  /**
+   * This is a helper method that runs an operation of Image on the pixels of this image and wraps
+   * the result as a new immutable image. The operation writes its result to a new buffer and only
+   * reads this one, so the buffer is handed over as it is. A result kept outside of the heap,
+   * which happens when new buffers are mapped, is copied onto the heap and closed.
+   *
+   * @param operation the operation to run, which must replace the buffer rather than write to it.
+   * @return the new immutable image.
+   */
+  private ImmutableImage apply(Consumer<ImageInterface> operation) {
+    ImageInterface work = new Image(pixels);
+    operation.accept(work);
+    PixelBuffer result = work.getPixelBuffer();
+    if (!(result instanceof Closeable)) {
+      return new ImmutableImage(result);
+    }
+    PixelBuffer heap = toHeap(result);
+    try {
+      ((Closeable) result).close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new ImmutableImage(heap);
+  }
+
+  /**
+   * This is a helper method that copies pixels kept outside of the heap into a new packed buffer.
+   *
+   * @param source the pixels to copy.
+   * @return the packed copy.
+   * @throws IllegalArgumentException if there are more pixels than an int array can hold.
+   */
+  private static PixelBuffer toHeap(PixelBuffer source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if ((long) width * height > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("The image is too large to be held on the heap.");
+    }
+    PixelBuffer pixels = PixelLayout.PACKED.allocate(width, height);
+    int[] row = new int[width];
+    for (int j = 0; j < height; j++) {
+      source.getRow(j, row);
+      pixels.setRow(j, row);
+    }
+    return pixels;
+  }
+
+  /**
+   * This is a helper method that makes a buffer holding the pixels of this image that may be
+   * written to. Copy-on-write buffers are forked so that only the tiles written later are
+   * copied; other buffers are copied in full.
+   *
+   * @return the writable buffer.
+   */
+  private PixelBuffer fork() {
+    if (pixels instanceof CopyOnWritePixelBuffer) {
+      return ((CopyOnWritePixelBuffer) pixels).fork();
+    }
+    return pixels.copy();
+  }
+}
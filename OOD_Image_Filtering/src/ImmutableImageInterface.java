@@ -0,0 +1,105 @@
+/**
+ * This interface represents an image that never changes once it has been made. Instead of
+ * changing the image in place, every operation returns a new image and leaves this one as it was.
+ * Because nothing is ever written to an immutable image, one image can be handed to several
+ * threads, or used to make several different outputs, without copying it first.
+ *
+ * <p>Only some of the operations of ImageInterface are offered here. The others can be run on the
+ * mutable copy made by toMutable.
+ */
+public interface ImmutableImageInterface {
+
+  /**
+   * This method makes a blurred copy of this image, the same way as ImageInterface.blurImage.
+   *
+   * @return the blurred image.
+   */
+  ImmutableImageInterface blur();
+
+  /**
+   * This method makes a sharpened copy of this image, the same way as
+   * ImageInterface.sharpenImage.
+   *
+   * @return the sharpened image.
+   */
+  ImmutableImageInterface sharpen();
+
+  /**
+   * This method makes a grey scale copy of this image, the same way as ImageInterface.grayScale.
+   *
+   * @return the grey scale image.
+   */
+  ImmutableImageInterface grayScale();
+
+  /**
+   * This method makes a sepia toned copy of this image, the same way as
+   * ImageInterface.sepiaTone.
+   *
+   * @return the sepia toned image.
+   */
+  ImmutableImageInterface sepiaTone();
+
+  /**
+   * This method makes a dithered copy of this image, the same way as ImageInterface.dither.
+   *
+   * @return the dithered image.
+   */
+  ImmutableImageInterface dither();
+
+  /**
+   * This method makes a mosaic copy of this image, the same way as ImageInterface.mosaic.
+   *
+   * @param seeds the number of random seeds in the image.
+   * @return the mosaic image.
+   */
+  ImmutableImageInterface mosaic(int seeds);
+
+  /**
+   * This method makes a mutable image holding the same pixels as this image. The mutable image
+   * is owned by the caller alone, so a chain of operations can be run on it in place and the
+   * result turned back into an immutable image with ImmutableImage.of. Changes to it never show
+   * in this image.
+   *
+   * @return the mutable image.
+   */
+  ImageInterface toMutable();
+
+  /**
+   * This method gets the pixel at the given location packed into one int, with red in bits 16 to
+   * 23, green in bits 8 to 15 and blue in bits 0 to 7.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the packed rgb value of that pixel.
+   */
+  int getRGB(int row, int col);
+
+  /**
+   * This method copies one row of this image into the given array as packed rgb values.
+   *
+   * @param row the row to copy.
+   * @param rgb the destination array, at least as long as the width of this image.
+   */
+  void getRow(int row, int[] rgb);
+
+  /**
+   * This is a getter method that gets a copy of this image as an int 3D array.
+   *
+   * @return int 3D array that represents this image.
+   */
+  int[][][] getMyImage();
+
+  /**
+   * This is a getter method that gets this image's width.
+   *
+   * @return int width, the width of this image.
+   */
+  int getMyImageWidth();
+
+  /**
+   * This is a getter method that gets this image's height.
+   *
+   * @return int height, the height of the image.
+   */
+  int getMyImageHeight();
+}
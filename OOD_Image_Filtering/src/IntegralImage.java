@@ -0,0 +1,98 @@
+/**
+ * This class represents the box blur worked out from the sums of an integral image, or summed
+ * area table. The sum of any rectangle of a table costs four lookups whatever its size, so the
+ * mean of a box costs the same whatever its radius. The blur takes the sums a table would give
+ * as it moves down the image, without building the table, so it needs only a few rows of sums
+ * and works on images kept outside of the heap.
+ */
+public final class IntegralImage {
+
+  /**
+   * This constructor is private because this class only has static methods.
+   */
+  private IntegralImage() {
+  }
+
+  /**
+   * This method makes a box blurred copy of a pixel buffer. Each pixel becomes the mean of the
+   * square of pixels reaching the radius on every side of it, cut off at the edges of the image,
+   * rounded to the nearest integer. The mean comes from the same sums a table would give, but the
+   * table is never built whole: each band of rows keeps the sum of every column over the rows
+   * in the box, adding the row that enters the box and taking away the row that leaves it as the
+   * box moves down, and then slides the box along the row the same way. Each pixel costs the same
+   * whatever the radius, and each thread holds a few rows of sums rather than a table of the whole
+   * image, so images kept outside of the heap are blurred without a copy on it.
+   *
+   * @param source the pixels to blur.
+   * @param radius the number of pixels the box reaches on each side of its centre.
+   * @return the blurred pixels, in a new buffer with the same layout as the source.
+   * @throws IllegalArgumentException if the radius is negative.
+   */
+  public static PixelBuffer boxBlur(PixelBuffer source, int radius) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("The radius cannot be negative.");
+    }
+    int width = source.getWidth();
+    int height = source.getHeight();
+    PixelBuffer result = source.create(width, height);
+    RowBands.run(height, (from, to) -> {
+      long[][] columns = new long[3][width];
+      int[] row = new int[width];
+      int[] blurred = new int[width];
+      int top = Math.max(0, from - radius);
+      int bottom = top;
+      for (int j = from; j < to; j++) {
+        while (bottom < Math.min(height, j + radius + 1)) {
+          source.getRow(bottom++, row);
+          addRow(columns, row, 1);
+        }
+        while (top < j - radius) {
+          source.getRow(top++, row);
+          addRow(columns, row, -1);
+        }
+        long rows = bottom - top;
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        int left = 0;
+        int right = 0;
+        for (int k = 0; k < width; k++) {
+          while (right < Math.min(width, k + radius + 1)) {
+            red += columns[0][right];
+            green += columns[1][right];
+            blue += columns[2][right];
+            right++;
+          }
+          while (left < k - radius) {
+            red -= columns[0][left];
+            green -= columns[1][left];
+            blue -= columns[2][left];
+            left++;
+          }
+          long count = rows * (right - left);
+          long half = count / 2;
+          blurred[k] = (int) ((red + half) / count) << 16 | (int) ((green + half) / count) << 8
+                  | (int) ((blue + half) / count);
+        }
+        result.setRow(j, blurred);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * This is a helper method that adds the channels of a row to the sums of each column, or takes
+   * them away.
+   *
+   * @param columns the sums of each column, one array per channel.
+   * @param row     the packed rgb values of the row.
+   * @param sign    1 to add the row and -1 to take it away.
+   */
+  private static void addRow(long[][] columns, int[] row, int sign) {
+    for (int k = 0; k < row.length; k++) {
+      columns[0][k] += sign * ((row[k] >> 16) & 0xFF);
+      columns[1][k] += sign * ((row[k] >> 8) & 0xFF);
+      columns[2][k] += sign * (row[k] & 0xFF);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This class represents an image whose pixels are stored outside of the Java heap in a memory
+ * mapped scratch file. It offers the same operations as Image and runs them directly on the
+ * mapped pixels, so very large scans and panoramas can be processed without an on-heap copy. The
+ * image owns its scratch file, and it must be closed once it is no longer needed so that the file
+ * is deleted.
+ */
+public class MappedImage extends Image implements Closeable {
+
+  /**
+   * This constructs a black mapped image of the given size.
+   *
+   * @param myImageWidth  the width of this image.
+   * @param myImageHeight the height of this image.
+   */
+  public MappedImage(int myImageWidth, int myImageHeight) {
+    this(new MappedPixelBuffer(myImageWidth, myImageHeight));
+  }
+
+  /**
+   * This constructs a mapped image around an existing mapped pixel buffer. The image takes
+   * ownership of the buffer and closes it when the image is closed.
+   *
+   * @param myImage the mapped pixel buffer that holds this image.
+   */
+  public MappedImage(MappedPixelBuffer myImage) {
+    super(myImage);
+  }
+
+  /**
+   * This method closes this image and deletes the scratch file that holds its pixels. The image
+   * cannot be used after it has been closed.
+   *
+   * @throws IOException if the scratch file cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    PixelBuffer buffer = getPixelBuffer();
+    if (buffer instanceof Closeable) {
+      ((Closeable) buffer).close();
+    }
+  }
+}
@@ -0,0 +1,183 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents a pixel buffer that lives outside of the Java heap. The pixels are packed
+ * into one int each, the same way as the packed layout, and stored in a scratch file that is
+ * memory mapped in bands of rows. Each band is kept under one gigabyte so that images larger
+ * than a single mapping, or larger than the heap, can still be held. The scratch file is deleted
+ * when this buffer is closed, and the buffer cannot be used after that.
+ */
+public class MappedPixelBuffer implements PixelBuffer, Closeable {
+  /**
+   * This field represents the largest number of ints mapped in one band.
+   */
+  private static final int MAX_INTS_PER_BAND = 1 << 28;
+  /**
+   * This field represents the width of this buffer.
+   */
+  private final int width;
+  /**
+   * This field represents the height of this buffer.
+   */
+  private final int height;
+  /**
+   * This field represents the number of rows held by each mapped band.
+   */
+  private final int rowsPerBand;
+  /**
+   * This field represents the scratch file that backs this buffer.
+   */
+  private final Path scratchFile;
+  /**
+   * This field represents the mapped bands of this buffer, or null once it has been closed.
+   */
+  private IntBuffer[] bands;
+
+  /**
+   * This constructs a black mapped buffer of the given size over a new scratch file in the
+   * default temporary directory.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @throws NegativeArraySizeException if either dimension is negative.
+   * @throws UncheckedIOException       if the scratch file cannot be created or mapped.
+   */
+  public MappedPixelBuffer(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Dimensions cannot be negative.");
+    }
+    this.width = width;
+    this.height = height;
+    this.rowsPerBand = Math.max(1, MAX_INTS_PER_BAND / Math.max(1, width));
+    try {
+      this.scratchFile = Files.createTempFile("image", ".pixels");
+      this.scratchFile.toFile().deleteOnExit();
+      try (FileChannel channel = FileChannel.open(scratchFile, StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        int bandCount = (height + rowsPerBand - 1) / rowsPerBand;
+        this.bands = new IntBuffer[bandCount];
+        for (int i = 0; i < bandCount; i++) {
+          long first = (long) i * rowsPerBand;
+          int rows = (int) Math.min(rowsPerBand, height - first);
+          this.bands[i] = channel.map(FileChannel.MapMode.READ_WRITE, first * width * 4,
+                  (long) rows * width * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getChannel(int row, int col, int channel) {
+    return (getRGB(row, col) >> (16 - 8 * channel)) & 0xFF;
+  }
+
+  @Override
+  public void setChannel(int row, int col, int channel, int value) {
+    int shift = 16 - 8 * channel;
+    IntBuffer band = band(row);
+    int index = index(row, col);
+    band.put(index, (band.get(index) & ~(0xFF << shift)) | (PixelBuffer.clamp(value) << shift));
+  }
+
+  @Override
+  public void setRGB(int row, int col, int r, int g, int b) {
+    band(row).put(index(row, col), (PixelBuffer.clamp(r) << 16) | (PixelBuffer.clamp(g) << 8)
+            | PixelBuffer.clamp(b));
+  }
+
+  @Override
+  public int getRGB(int row, int col) {
+    return band(row).get(index(row, col));
+  }
+
+  @Override
+  public void getRow(int row, int[] rgb) {
+    IntBuffer band = band(row).duplicate();
+    band.position(index(row, 0));
+    band.get(rgb, 0, width);
+  }
+
+  @Override
+  public void setRow(int row, int[] rgb) {
+    IntBuffer band = band(row);
+    int offset = index(row, 0);
+    for (int k = 0; k < width; k++) {
+      band.put(offset + k, rgb[k] & 0xFFFFFF);
+    }
+  }
+
+  @Override
+  public PixelBuffer create(int width, int height) {
+    return new MappedPixelBuffer(width, height);
+  }
+
+  @Override
+  public PixelBuffer copy() {
+    MappedPixelBuffer copy = new MappedPixelBuffer(width, height);
+    int[] row = new int[width];
+    for (int j = 0; j < height; j++) {
+      getRow(j, row);
+      copy.setRow(j, row);
+    }
+    return copy;
+  }
+
+  /**
+   * This method releases this buffer and deletes its scratch file. The mapped memory is returned
+   * to the operating system once the mapping is no longer referenced.
+   *
+   * @throws IOException if the scratch file cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    if (bands != null) {
+      bands = null;
+      Files.deleteIfExists(scratchFile);
+    }
+  }
+
+  /**
+   * This is a helper method that gets the mapped band holding the given row.
+   *
+   * @param row the row of the pixel.
+   * @return the band holding that row.
+   * @throws IllegalStateException if this buffer has been closed.
+   */
+  private IntBuffer band(int row) {
+    if (bands == null) {
+      throw new IllegalStateException("The pixel buffer has been closed.");
+    }
+    return bands[row / rowsPerBand];
+  }
+
+  /**
+   * This is a helper method that gets the position of a pixel inside its band.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the index of the pixel inside its band.
+   */
+  private int index(int row, int col) {
+    return (row % rowsPerBand) * width + col;
+  }
+}
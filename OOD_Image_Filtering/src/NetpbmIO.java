@@ -0,0 +1,453 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class represents an image file in one of the binary Netpbm formats: a PPM (P6) holding
+ * red, green and blue samples, a PGM (P5) holding gray samples, or a PAM (P7) holding one to four
+ * samples a pixel, where a second or fourth sample is alpha and is ignored. These formats are raw
+ * samples after a short text header, so they are read and written with no codec at all. The
+ * header is parsed here, and the samples are read straight from the file through memory mapped
+ * bands of rows of at most one gigabyte, so reading a row costs no more than unpacking its bytes.
+ * Samples with a maximum other than 255, including two byte samples, are scaled to 0 to 255.
+ *
+ * <p>Files are written the same way: the header is written and the rest of the file is mapped
+ * and filled a band of rows at a time. PPM and PNM files get red, green and blue samples, PGM
+ * files get the gray value used by gray scale, and PAM files get an RGB tuple, all with a maximum
+ * of 255.
+ */
+public final class NetpbmIO {
+  /**
+   * This field represents the extensions of the files read and written by this class.
+   */
+  private static final List<String> FORMATS = Arrays.asList("ppm", "pgm", "pam", "pnm");
+  /**
+   * This field represents the largest number of bytes mapped in one band.
+   */
+  private static final long MAX_BYTES_PER_BAND = 1L << 30;
+  /**
+   * This field represents the longest header that is read.
+   */
+  private static final int MAX_HEADER_BYTES = 1 << 16;
+  /**
+   * This field represents the width of the image.
+   */
+  private final int width;
+  /**
+   * This field represents the height of the image.
+   */
+  private final int height;
+  /**
+   * This field represents the number of samples in each pixel.
+   */
+  private final int depth;
+  /**
+   * This field represents the largest value of a sample.
+   */
+  private final int maxValue;
+  /**
+   * This field represents the number of bytes in each row of samples.
+   */
+  private final int rowBytes;
+  /**
+   * This field represents the number of rows in each mapped band.
+   */
+  private final int rowsPerBand;
+  /**
+   * This field represents the mapped bands of rows of samples.
+   */
+  private final ByteBuffer[] bands;
+  /**
+   * This field represents the value from 0 to 255 of every sample, or null if the largest value
+   * of a sample is already 255.
+   */
+  private final int[] scale;
+
+  /**
+   * This constructs a Netpbm file that has been opened and mapped.
+   *
+   * @param width       the width of the image.
+   * @param height      the height of the image.
+   * @param depth       the number of samples in each pixel.
+   * @param maxValue    the largest value of a sample.
+   * @param rowsPerBand the number of rows in each mapped band.
+   * @param bands       the mapped bands of rows of samples.
+   */
+  private NetpbmIO(int width, int height, int depth, int maxValue, int rowsPerBand,
+                   ByteBuffer[] bands) {
+    this.width = width;
+    this.height = height;
+    this.depth = depth;
+    this.maxValue = maxValue;
+    this.rowBytes = width * depth * (maxValue > 255 ? 2 : 1);
+    this.rowsPerBand = rowsPerBand;
+    this.bands = bands;
+    this.scale = maxValue == 255 ? null : scale(maxValue);
+  }
+
+  /**
+   * This method checks whether a file is read and written by this class, which is decided by its
+   * extension.
+   *
+   * @param filename the name of the file.
+   * @return true if the file is a ppm, pgm, pam or pnm file.
+   */
+  public static boolean isNetpbm(String filename) {
+    return FORMATS.contains(ImageUtil.getFormat(filename).toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * This method opens a Netpbm file. The header is read and the samples are mapped, but none of
+   * them are read until rows are asked for.
+   *
+   * @param file the file to open.
+   * @return the opened file.
+   * @throws IOException if the file cannot be read, is not a binary Netpbm file, or is shorter
+   *                     than its header says.
+   */
+  public static NetpbmIO open(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate((int) Math.min(MAX_HEADER_BYTES, channel.size()));
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        //Keep reading until the buffer is full or the file ends.
+      }
+      header.flip();
+      HeaderReader reader = new HeaderReader(header);
+      int width;
+      int height;
+      int depth;
+      int maxValue;
+      String magic = reader.token();
+      if (magic.equals("P5") || magic.equals("P6")) {
+        width = reader.number();
+        height = reader.number();
+        maxValue = reader.number();
+        depth = magic.equals("P5") ? 1 : 3;
+        reader.endOfHeader();
+      } else if (magic.equals("P7")) {
+        width = -1;
+        height = -1;
+        depth = -1;
+        maxValue = -1;
+        for (String key = reader.token(); !key.equals("ENDHDR"); key = reader.token()) {
+          switch (key) {
+            case "WIDTH":
+              width = reader.number();
+              break;
+            case "HEIGHT":
+              height = reader.number();
+              break;
+            case "DEPTH":
+              depth = reader.number();
+              break;
+            case "MAXVAL":
+              maxValue = reader.number();
+              break;
+            default:
+              //The tuple type and anything else only describe the samples.
+              reader.restOfLine();
+          }
+        }
+        reader.endOfHeader();
+      } else {
+        throw new IOException(file + " is not a binary Netpbm file.");
+      }
+      if (width < 1 || height < 1 || depth < 1 || depth > 4 || maxValue < 1
+              || maxValue > 65535) {
+        throw new IOException(file + " has a header that is not supported.");
+      }
+      long start = header.position();
+      long rowBytes = (long) width * depth * (maxValue > 255 ? 2 : 1);
+      if (rowBytes > MAX_BYTES_PER_BAND) {
+        throw new IOException(file + " has rows too long to be mapped.");
+      }
+      if (channel.size() < start + rowBytes * height) {
+        throw new IOException(file + " is shorter than its header says.");
+      }
+      int rowsPerBand = (int) Math.max(1, Math.min(height, MAX_BYTES_PER_BAND / rowBytes));
+      ByteBuffer[] bands = new ByteBuffer[(height + rowsPerBand - 1) / rowsPerBand];
+      for (int i = 0; i < bands.length; i++) {
+        long first = (long) i * rowsPerBand;
+        long rows = Math.min(rowsPerBand, height - first);
+        bands[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + first * rowBytes,
+                rows * rowBytes);
+      }
+      return new NetpbmIO(width, height, depth, maxValue, rowsPerBand, bands);
+    }
+  }
+
+  /**
+   * This method gets the width of the image.
+   *
+   * @return the width of the image.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * This method gets the height of the image.
+   *
+   * @return the height of the image.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * This method reads one row of the image as packed rgb values. A gray sample is copied into
+   * all three channels. Rows can be read from several threads at once.
+   *
+   * @param row the row to read.
+   * @param rgb the array to store the row in, at least as long as the width of the image.
+   */
+  public void getRow(int row, int[] rgb) {
+    if (row < 0 || row >= height) {
+      throw new ArrayIndexOutOfBoundsException("Row is outside of the image.");
+    }
+    byte[] samples = new byte[rowBytes];
+    ByteBuffer band = bands[row / rowsPerBand].duplicate();
+    band.position((row % rowsPerBand) * rowBytes);
+    band.get(samples);
+    //A gray pixel reads its one sample three times, and alpha samples are skipped over.
+    int green = depth >= 3 ? 1 : 0;
+    int blue = depth >= 3 ? 2 : 0;
+    if (maxValue == 255) {
+      for (int k = 0, i = 0; k < width; k++, i += depth) {
+        rgb[k] = ((samples[i] & 0xFF) << 16) | ((samples[i + green] & 0xFF) << 8)
+                | (samples[i + blue] & 0xFF);
+      }
+      return;
+    }
+    int size = maxValue > 255 ? 2 : 1;
+    for (int k = 0, i = 0; k < width; k++, i += depth * size) {
+      rgb[k] = (scale[sample(samples, i, size)] << 16)
+              | (scale[sample(samples, i + green * size, size)] << 8)
+              | scale[sample(samples, i + blue * size, size)];
+    }
+  }
+
+  /**
+   * This method reads the whole image into a pixel buffer of the same size. Bands of rows are
+   * read at the same time.
+   *
+   * @param target the pixel buffer to fill.
+   * @throws IllegalArgumentException if the buffer is not the size of the image.
+   */
+  public void readInto(PixelBuffer target) {
+    if (target.getWidth() != width || target.getHeight() != height) {
+      throw new IllegalArgumentException("The buffer is not the size of the image.");
+    }
+    RowBands.run(height, (from, to) -> {
+      int[] row = new int[width];
+      for (int j = from; j < to; j++) {
+        getRow(j, row);
+        target.setRow(j, row);
+      }
+    });
+  }
+
+  /**
+   * This method writes a pixel buffer to a Netpbm file, in the format given by the extension of
+   * the file. The file is mapped and its rows are filled from the buffer, in bands at the same
+   * time or one row after another from the top.
+   *
+   * @param buffer   the pixels to write.
+   * @param filename the path of the file to write.
+   * @param inOrder  whether the rows must be read from the buffer one after another from the top,
+   *                 as they must be from a buffer that works them out as they are read.
+   * @throws IOException              if the file cannot be written.
+   * @throws IllegalArgumentException if the file is not a Netpbm file, or the image is empty or
+   *                                  too wide to be mapped.
+   */
+  public static void write(PixelBuffer buffer, String filename, boolean inOrder)
+          throws IOException {
+    String format = ImageUtil.getFormat(filename).toLowerCase(Locale.ROOT);
+    if (!FORMATS.contains(format)) {
+      throw new IllegalArgumentException(filename + " is not a Netpbm file.");
+    }
+    int width = buffer.getWidth();
+    int height = buffer.getHeight();
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("An empty image cannot be written.");
+    }
+    int depth = format.equals("pgm") ? 1 : 3;
+    String header;
+    if (format.equals("pam")) {
+      header = "P7\nWIDTH " + width + "\nHEIGHT " + height + "\nDEPTH 3\nMAXVAL 255\n"
+              + "TUPLTYPE RGB\nENDHDR\n";
+    } else {
+      header = (depth == 1 ? "P5\n" : "P6\n") + width + " " + height + "\n255\n";
+    }
+    byte[] headerBytes = header.getBytes(StandardCharsets.US_ASCII);
+    if ((long) width * depth > MAX_BYTES_PER_BAND) {
+      throw new IllegalArgumentException("A row of the image is too long to be mapped.");
+    }
+    int rowBytes = width * depth;
+    int rowsPerBand = (int) Math.max(1, Math.min(height, MAX_BYTES_PER_BAND / rowBytes));
+    try (FileChannel channel = FileChannel.open(new File(filename).toPath(),
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer start = ByteBuffer.wrap(headerBytes);
+      while (start.hasRemaining()) {
+        channel.write(start);
+      }
+      for (int first = 0; first < height; first += rowsPerBand) {
+        int rows = Math.min(rowsPerBand, height - first);
+        ByteBuffer band = channel.map(FileChannel.MapMode.READ_WRITE,
+                headerBytes.length + (long) first * rowBytes, (long) rows * rowBytes);
+        int top = first;
+        RowBands.Band fill = (from, to) -> {
+          int[] row = new int[width];
+          int[] gray = new int[width];
+          byte[] samples = new byte[rowBytes];
+          for (int j = from; j < to; j++) {
+            buffer.getRow(top + j, row);
+            if (depth == 1) {
+              ColorMatrixOp.GRAY.applyChannel(row, width, 0, gray);
+              for (int k = 0; k < width; k++) {
+                samples[k] = (byte) gray[k];
+              }
+            } else {
+              for (int k = 0, i = 0; k < width; k++, i += 3) {
+                samples[i] = (byte) (row[k] >> 16);
+                samples[i + 1] = (byte) (row[k] >> 8);
+                samples[i + 2] = (byte) row[k];
+              }
+            }
+            ByteBuffer slice = band.duplicate();
+            slice.position(j * rowBytes);
+            slice.put(samples);
+          }
+        };
+        if (inOrder) {
+          fill.apply(0, rows);
+        } else {
+          RowBands.run(rows, fill);
+        }
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that works out the value from 0 to 255 of every sample, rounded to
+   * the nearest.
+   *
+   * @param maxValue the largest value of a sample.
+   * @return the scaled value of every sample from 0 to the largest value.
+   */
+  private static int[] scale(int maxValue) {
+    int[] scale = new int[maxValue + 1];
+    for (int i = 0; i <= maxValue; i++) {
+      scale[i] = (int) ((i * 255L + maxValue / 2) / maxValue);
+    }
+    return scale;
+  }
+
+  /**
+   * This is a helper method that reads one sample of one or two bytes, the high byte first.
+   *
+   * @param samples the bytes of the row.
+   * @param i       the index of the first byte of the sample.
+   * @param size    the number of bytes in a sample.
+   * @return the sample, or the largest value if the sample is larger than that.
+   */
+  private int sample(byte[] samples, int i, int size) {
+    int value = samples[i] & 0xFF;
+    if (size == 2) {
+      value = (value << 8) | (samples[i + 1] & 0xFF);
+    }
+    return Math.min(value, maxValue);
+  }
+
+  /**
+   * This class represents the reading of the text header of a Netpbm file, one token at a time.
+   * Comments from a # to the end of the line are skipped.
+   */
+  private static final class HeaderReader {
+    /**
+     * This field represents the bytes of the start of the file, positioned after the last token
+     * read.
+     */
+    private final ByteBuffer header;
+
+    /**
+     * This constructs a reader over the start of a file.
+     *
+     * @param header the bytes of the start of the file.
+     */
+    HeaderReader(ByteBuffer header) {
+      this.header = header;
+    }
+
+    /**
+     * This method reads the next token, skipping white space and comments before it.
+     *
+     * @return the token.
+     * @throws IOException if the header ends first.
+     */
+    String token() throws IOException {
+      while (true) {
+        if (!header.hasRemaining()) {
+          throw new IOException("The header ends too soon.");
+        }
+        byte next = header.get(header.position());
+        if (next == '#') {
+          restOfLine();
+        } else if (Character.isWhitespace(next)) {
+          header.get();
+        } else {
+          break;
+        }
+      }
+      StringBuilder token = new StringBuilder();
+      while (header.hasRemaining() && !Character.isWhitespace(header.get(header.position()))
+              && header.get(header.position()) != '#') {
+        token.append((char) header.get());
+      }
+      return token.toString();
+    }
+
+    /**
+     * This method reads the next token as a number.
+     *
+     * @return the number.
+     * @throws IOException if the token is not a number.
+     */
+    int number() throws IOException {
+      String token = token();
+      try {
+        return Integer.parseInt(token);
+      } catch (NumberFormatException e) {
+        throw new IOException("The header holds " + token + " where a number should be.");
+      }
+    }
+
+    /**
+     * This method skips to the start of the next line.
+     */
+    void restOfLine() {
+      while (header.hasRemaining() && header.get() != '\n') {
+        //Skip the rest of the line.
+      }
+    }
+
+    /**
+     * This method skips the one white space character that ends the header, so the reader is
+     * left on the first sample.
+     *
+     * @throws IOException if the header does not end with white space.
+     */
+    void endOfHeader() throws IOException {
+      if (!header.hasRemaining() || !Character.isWhitespace(header.get())) {
+        throw new IOException("The header does not end with white space.");
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * This class represents ordered dithering of an image to black and white with a Bayer threshold
+ * matrix. Each pixel is turned gray and compared with the entry of the matrix that lies under it
+ * when the matrix is tiled across the image: it becomes white if its gray value reaches the
+ * threshold and black otherwise. No error is carried between pixels, so every pixel is worked out
+ * on its own. Rows are split into bands that are dithered at the same time, and the loop over a
+ * row has no branches so that it can be vectorized.
+ *
+ * <p>Ordered dithering gives a regular cross hatched pattern rather than the scattered dots of
+ * error diffusion, but its result does not depend on the order the pixels are visited in and it
+ * uses every thread. For the same reason it can run as a stage of a ScanlinePipeline.
+ */
+public class OrderedDither implements ScanlineStage {
+  /**
+   * This field represents the side of the largest threshold matrix.
+   */
+  private static final int MAX_SIZE = 8;
+  /**
+   * This field represents the side of the threshold matrix.
+   */
+  private final int size;
+  /**
+   * This field represents the thresholds, as gray values from 1 to 255, in the order of the
+   * Bayer matrix. The threshold under column k of row j is at [j % size][k % size].
+   */
+  private final int[][] thresholds;
+
+  /**
+   * This constructs an ordered dither with a Bayer matrix of the given side.
+   *
+   * @param size the side of the threshold matrix, 2, 4 or 8.
+   * @throws IllegalArgumentException if the side is not 2, 4 or 8.
+   */
+  public OrderedDither(int size) {
+    if (!isValidSize(size)) {
+      throw new IllegalArgumentException("The matrix size must be 2, 4 or 8.");
+    }
+    this.size = size;
+    int[][] bayer = bayer(size);
+    int cells = size * size;
+    this.thresholds = new int[size][size];
+    for (int j = 0; j < size; j++) {
+      for (int k = 0; k < size; k++) {
+        //The threshold sits in the middle of the slice of 0 to 256 the entry stands for.
+        thresholds[j][k] = ((2 * bayer[j][k] + 1) * 128 + cells - 1) / cells;
+      }
+    }
+  }
+
+  /**
+   * This method checks whether a side can be used for the threshold matrix.
+   *
+   * @param size the side of the matrix.
+   * @return true if the side is 2, 4 or 8.
+   */
+  public static boolean isValidSize(int size) {
+    return size >= 2 && size <= MAX_SIZE && Integer.bitCount(size) == 1;
+  }
+
+  /**
+   * This method dithers the source buffer and returns the result in a new buffer with the same
+   * layout. The source buffer is not changed.
+   *
+   * @param source the pixels to dither.
+   * @return the dithered pixels, each one black or white.
+   */
+  public PixelBuffer apply(PixelBuffer source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    PixelBuffer result = source.create(width, height);
+    int[][] rowThresholds = rowThresholds(width);
+    RowBands.run(height, (from, to) -> {
+      int[] packed = new int[width];
+      int[] gray = new int[width];
+      for (int j = from; j < to; j++) {
+        source.getRow(j, packed);
+        ditherRow(packed, gray, rowThresholds[j % size]);
+        result.setRow(j, packed);
+      }
+    });
+    return result;
+  }
+
+  @Override
+  public int getReach() {
+    return 0;
+  }
+
+  @Override
+  public Cursor open(PixelBuffer source) {
+    int[][] rowThresholds = rowThresholds(source.getWidth());
+    int[] gray = new int[source.getWidth()];
+    return (row, rgb) -> {
+      source.getRow(row, rgb);
+      ditherRow(rgb, gray, rowThresholds[row % size]);
+    };
+  }
+
+  /**
+   * This is a helper method that lays each row of the threshold matrix across the width of the
+   * image, so the threshold under a pixel can be read without working out its column.
+   *
+   * @param width the width of the image.
+   * @return the thresholds under each row of the matrix, as wide as the image.
+   */
+  private int[][] rowThresholds(int width) {
+    int[][] rowThresholds = new int[size][width];
+    for (int j = 0; j < size; j++) {
+      for (int k = 0; k < width; k++) {
+        rowThresholds[j][k] = thresholds[j][k % size];
+      }
+    }
+    return rowThresholds;
+  }
+
+  /**
+   * This is a helper method that dithers one row in place.
+   *
+   * @param packed    the packed rgb values of the row, replaced by black or white.
+   * @param gray      a scratch array for the gray values, as long as the threshold row.
+   * @param threshold the thresholds under the row.
+   */
+  private static void ditherRow(int[] packed, int[] gray, int[] threshold) {
+    int width = threshold.length;
+    ColorMatrixOp.GRAY.applyChannel(packed, width, 0, gray);
+    for (int k = 0; k < width; k++) {
+      //The difference is negative exactly when the gray value reaches the threshold.
+      packed[k] = ((threshold[k] - gray[k] - 1) >> 31) & 0xFFFFFF;
+    }
+  }
+
+  /**
+   * This is a helper method that builds the Bayer matrix of a side that is a power of two. Each
+   * matrix is made from the one half its side by putting four times it in each quarter, plus 0 in
+   * the top left, 2 in the top right, 3 in the bottom left and 1 in the bottom right.
+   *
+   * @param size the side of the matrix.
+   * @return the matrix, holding each number from 0 to size * size - 1 once.
+   */
+  private static int[][] bayer(int size) {
+    int[][] matrix = {{0}};
+    for (int side = 1; side < size; side *= 2) {
+      int[][] next = new int[2 * side][2 * side];
+      for (int j = 0; j < side; j++) {
+        for (int k = 0; k < side; k++) {
+          int value = 4 * matrix[j][k];
+          next[j][k] = value;
+          next[j][k + side] = value + 2;
+          next[j + side][k] = value + 3;
+          next[j + side][k + side] = value + 1;
+        }
+      }
+      matrix = next;
+    }
+    return matrix;
+  }
+}
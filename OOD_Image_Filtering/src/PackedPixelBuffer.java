@@ -0,0 +1,113 @@
+/**
+ * This class represents a pixel buffer that packs every pixel into a single int, with red in bits
+ * 16 to 23, green in bits 8 to 15 and blue in bits 0 to 7. All pixels are kept in one flat array
+ * in row order, so a whole image is one object on the heap and a scan over it reads memory in
+ * order. Because every channel only has eight bits, values are clamped to 0 to 255 when they are
+ * stored.
+ */
+public class PackedPixelBuffer implements PixelBuffer {
+  /**
+   * This field represents the packed rgb value of every pixel, one row after another.
+   */
+  private final int[] pixels;
+  /**
+   * This field represents the width of this buffer.
+   */
+  private final int width;
+  /**
+   * This field represents the height of this buffer.
+   */
+  private final int height;
+
+  /**
+   * This constructs a black packed buffer of the given size.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @throws NegativeArraySizeException if either dimension is negative.
+   */
+  public PackedPixelBuffer(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Dimensions cannot be negative.");
+    }
+    this.pixels = new int[width * height];
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * This method builds a packed buffer from the 3D array representation of an image.
+   *
+   * @param rgb    the image data as a 3D array of row, column and channel values.
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @return the packed buffer holding the same pixels.
+   */
+  public static PackedPixelBuffer fromArray(int[][][] rgb, int width, int height) {
+    PackedPixelBuffer buffer = new PackedPixelBuffer(width, height);
+    for (int j = 0; j < height; j++) {
+      for (int k = 0; k < width; k++) {
+        buffer.setRGB(j, k, rgb[j][k][0], rgb[j][k][1], rgb[j][k][2]);
+      }
+    }
+    return buffer;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getChannel(int row, int col, int channel) {
+    return (pixels[row * width + col] >> (16 - 8 * channel)) & 0xFF;
+  }
+
+  @Override
+  public void setChannel(int row, int col, int channel, int value) {
+    int shift = 16 - 8 * channel;
+    int index = row * width + col;
+    pixels[index] = (pixels[index] & ~(0xFF << shift)) | (PixelBuffer.clamp(value) << shift);
+  }
+
+  @Override
+  public void setRGB(int row, int col, int r, int g, int b) {
+    pixels[row * width + col] = (PixelBuffer.clamp(r) << 16) | (PixelBuffer.clamp(g) << 8)
+            | PixelBuffer.clamp(b);
+  }
+
+  @Override
+  public int getRGB(int row, int col) {
+    return pixels[row * width + col];
+  }
+
+  @Override
+  public void getRow(int row, int[] rgb) {
+    System.arraycopy(pixels, row * width, rgb, 0, width);
+  }
+
+  @Override
+  public void setRow(int row, int[] rgb) {
+    int offset = row * width;
+    for (int k = 0; k < width; k++) {
+      pixels[offset + k] = rgb[k] & 0xFFFFFF;
+    }
+  }
+
+  @Override
+  public PixelBuffer create(int width, int height) {
+    return new PackedPixelBuffer(width, height);
+  }
+
+  @Override
+  public PixelBuffer copy() {
+    PackedPixelBuffer copy = new PackedPixelBuffer(width, height);
+    System.arraycopy(pixels, 0, copy.pixels, 0, pixels.length);
+    return copy;
+  }
+}
@@ -0,0 +1,154 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * This class represents the cache of mosaic partitions shared by every image. A partition is
+ * fixed by the size of the image, the number of seeds, the number the seeds are drawn from and
+ * the way the nearest seeds are found, so images of the same size in a batch that are given the
+ * same seeds share one partition and only pay for averaging their colours. Partitions are kept in
+ * a least recently used cache with a budget in bytes, read from the image.partitionCacheBytes
+ * system property and 64 megabytes by default. When the cache is full the oldest partitions are
+ * dropped. All access is synchronized, so images on different threads can share it.
+ */
+public final class PartitionCache {
+  /**
+   * This field represents the partitions in memory, the least recently used first.
+   */
+  private static final LinkedHashMap<Key, VoronoiPartition> cache =
+          new LinkedHashMap<>(16, 0.75f, true);
+  /**
+   * This field represents the bytes held by the partitions in the cache.
+   */
+  private static long cachedBytes;
+
+  /**
+   * This constructor is private because this class only has static methods.
+   */
+  private PartitionCache() {
+  }
+
+  /**
+   * This method gets the partition of an image of the given size by seeds drawn from the given
+   * number, making it and keeping it in the cache if it is not there already. The rows of the
+   * seeds are drawn first and then their columns, from one random number generator started with
+   * the given number, so the same arguments always give the same partition.
+   *
+   * @param width      the width of the image.
+   * @param height     the height of the image.
+   * @param seeds      the number of seeds.
+   * @param randomSeed the number the random number generator is started with.
+   * @param method     the way of finding the nearest seed of every pixel.
+   * @return the partition.
+   * @throws IllegalArgumentException if there are no seeds or the image has no pixels.
+   */
+  public static VoronoiPartition get(int width, int height, int seeds, long randomSeed,
+                                     VoronoiPartition.Method method) {
+    if (seeds < 1 || width < 1 || height < 1) {
+      throw new IllegalArgumentException("A partition needs at least one seed and one pixel.");
+    }
+    Key key = new Key(width, height, seeds, randomSeed, method);
+    synchronized (cache) {
+      VoronoiPartition partition = cache.get(key);
+      if (partition != null) {
+        return partition;
+      }
+    }
+    Random random = new Random(randomSeed);
+    int[] seedRows = new int[seeds];
+    int[] seedColumns = new int[seeds];
+    for (int i = 0; i < seeds; i++) {
+      seedRows[i] = random.nextInt(height);
+    }
+    for (int i = 0; i < seeds; i++) {
+      seedColumns[i] = random.nextInt(width);
+    }
+    VoronoiPartition partition = new VoronoiPartition(width, height, seedRows, seedColumns,
+            method);
+    synchronized (cache) {
+      VoronoiPartition replaced = cache.put(key, partition);
+      if (replaced != null) {
+        cachedBytes -= replaced.getBytes();
+      }
+      cachedBytes += partition.getBytes();
+      long budget = Long.getLong("image.partitionCacheBytes", 64L << 20);
+      Iterator<Map.Entry<Key, VoronoiPartition>> oldest = cache.entrySet().iterator();
+      while (cachedBytes > budget && oldest.hasNext()) {
+        VoronoiPartition evicted = oldest.next().getValue();
+        oldest.remove();
+        cachedBytes -= evicted.getBytes();
+      }
+    }
+    return partition;
+  }
+
+  /**
+   * This method drops every partition from the cache.
+   */
+  public static void clear() {
+    synchronized (cache) {
+      cache.clear();
+      cachedBytes = 0;
+    }
+  }
+
+  /**
+   * This class represents everything that fixes a partition, used to look it up in the cache.
+   */
+  private static final class Key {
+    /**
+     * This field represents the width of the image.
+     */
+    private final int width;
+    /**
+     * This field represents the height of the image.
+     */
+    private final int height;
+    /**
+     * This field represents the number of seeds.
+     */
+    private final int seeds;
+    /**
+     * This field represents the number the random number generator is started with.
+     */
+    private final long randomSeed;
+    /**
+     * This field represents the way of finding the nearest seed of every pixel.
+     */
+    private final VoronoiPartition.Method method;
+
+    /**
+     * This constructs a key.
+     *
+     * @param width      the width of the image.
+     * @param height     the height of the image.
+     * @param seeds      the number of seeds.
+     * @param randomSeed the number the random number generator is started with.
+     * @param method     the way of finding the nearest seed of every pixel.
+     */
+    Key(int width, int height, int seeds, long randomSeed, VoronoiPartition.Method method) {
+      this.width = width;
+      this.height = height;
+      this.seeds = seeds;
+      this.randomSeed = randomSeed;
+      this.method = method;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return width == key.width && height == key.height && seeds == key.seeds
+              && randomSeed == key.randomSeed && method == key.method;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(width, height, seeds, randomSeed, method);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ * This interface represents the storage behind an image. It hides how the red, green and blue
+ * channels of every pixel are laid out in memory so that the model, the utilities and the
+ * controllers can work on an image without knowing whether it is packed into one int per pixel,
+ * split into one array per channel, or stored some other way. Rows are numbered from the top of
+ * the image and columns from the left, the same way as the 3D array used by the rest of the
+ * project.
+ */
+public interface PixelBuffer {
+
+  /**
+   * This is a getter method that gets the width of this buffer in pixels.
+   *
+   * @return the width of this buffer.
+   */
+  int getWidth();
+
+  /**
+   * This is a getter method that gets the height of this buffer in pixels.
+   *
+   * @return the height of this buffer.
+   */
+  int getHeight();
+
+  /**
+   * This method gets one channel value of the pixel at the given location.
+   *
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @param channel the channel, 0 for red, 1 for green and 2 for blue.
+   * @return the value stored for that channel.
+   */
+  int getChannel(int row, int col, int channel);
+
+  /**
+   * This method sets one channel value of the pixel at the given location. Every layout clamps the
+   * value to 0 to 255 when it is stored, so filters never need a separate clamping pass.
+   *
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @param channel the channel, 0 for red, 1 for green and 2 for blue.
+   * @param value   the new value of that channel.
+   */
+  void setChannel(int row, int col, int channel, int value);
+
+  /**
+   * This method sets all three channels of the pixel at the given location.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @param r   the r channel value of that pixel.
+   * @param g   the g channel value of that pixel.
+   * @param b   the b channel value of that pixel.
+   */
+  default void setRGB(int row, int col, int r, int g, int b) {
+    setChannel(row, col, 0, r);
+    setChannel(row, col, 1, g);
+    setChannel(row, col, 2, b);
+  }
+
+  /**
+   * This method gets the pixel at the given location packed into one int, with red in bits 16 to
+   * 23, green in bits 8 to 15 and blue in bits 0 to 7. Each channel is clamped to 0 to 255 before
+   * it is packed.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the packed rgb value of that pixel.
+   */
+  default int getRGB(int row, int col) {
+    return (clamp(getChannel(row, col, 0)) << 16) | (clamp(getChannel(row, col, 1)) << 8)
+            | clamp(getChannel(row, col, 2));
+  }
+
+  /**
+   * This method copies one row of this buffer into the given array as packed rgb values.
+   *
+   * @param row the row to copy.
+   * @param rgb the destination array, at least as long as the width of this buffer.
+   */
+  default void getRow(int row, int[] rgb) {
+    for (int k = 0; k < getWidth(); k++) {
+      rgb[k] = getRGB(row, k);
+    }
+  }
+
+  /**
+   * This method overwrites one row of this buffer with the packed rgb values in the given array.
+   *
+   * @param row the row to overwrite.
+   * @param rgb the source array, at least as long as the width of this buffer.
+   */
+  default void setRow(int row, int[] rgb) {
+    for (int k = 0; k < getWidth(); k++) {
+      setRGB(row, k, (rgb[k] >> 16) & 0xFF, (rgb[k] >> 8) & 0xFF, rgb[k] & 0xFF);
+    }
+  }
+
+  /**
+   * This method creates a new, black buffer of the given size that uses the same layout as this
+   * buffer.
+   *
+   * @param width  the width of the new buffer.
+   * @param height the height of the new buffer.
+   * @return the new buffer.
+   */
+  PixelBuffer create(int width, int height);
+
+  /**
+   * This method creates an independent copy of this buffer.
+   *
+   * @return a copy of this buffer.
+   */
+  PixelBuffer copy();
+
+  /**
+   * This method takes a snapshot of this buffer. Later changes to this buffer do not show in the
+   * snapshot, and changes to the snapshot do not show in this buffer. Layouts that can share
+   * storage between the two do so; the others make a full copy.
+   *
+   * @return a snapshot of this buffer.
+   */
+  default PixelBuffer snapshot() {
+    return copy();
+  }
+
+  /**
+   * This method converts this buffer into the 3D array representation used by the rest of the
+   * project. The array is a new copy, so changing it does not change this buffer.
+   *
+   * @return int 3D array of row, column and channel values.
+   */
+  default int[][][] toArray() {
+    int[][][] result = new int[getHeight()][getWidth()][3];
+    for (int j = 0; j < getHeight(); j++) {
+      for (int k = 0; k < getWidth(); k++) {
+        result[j][k][0] = getChannel(j, k, 0);
+        result[j][k][1] = getChannel(j, k, 1);
+        result[j][k][2] = getChannel(j, k, 2);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * This is a helper method that clamps a channel value to be between 0 and 255. It uses shifts
+   * and masks instead of branches, so it costs the same for every value and does not stop a loop
+   * from being vectorized. The first step clears negative values, and the second adds back only
+   * the part of the value below 255.
+   *
+   * @param value the value to clamp.
+   * @return the clamped value.
+   */
+  static int clamp(int value) {
+    value &= ~(value >> 31);
+    value -= 255;
+    value &= value >> 31;
+    return value + 255;
+  }
+
+  /**
+   * This method checks that every channel of every pixel in this buffer is between 0 and 255. It
+   * reads the whole buffer, so it is only meant to be called from assert statements, which run
+   * when assertions are turned on with -ea.
+   *
+   * @return true if every value is in range.
+   */
+  default boolean isInRange() {
+    for (int j = 0; j < getHeight(); j++) {
+      for (int k = 0; k < getWidth(); k++) {
+        for (int i = 0; i < 3; i++) {
+          int value = getChannel(j, k, i);
+          if (value < 0 || value > 255) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,218 @@
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * This class represents a pixel buffer seen as an image that the image writers of the standard
+ * library can encode, without copying it into a BufferedImage first. The image is made of tiles
+ * one row high, and each row is read from the buffer only when a writer asks for it. The PNG and
+ * BMP writers ask for one row at a time, which lets procedural images far larger than the heap be
+ * saved. The JPEG writer asks for the whole image at once, so it is given a raster whose data is
+ * read from the buffer a row at a time as the writer walks down it. That still only holds a row
+ * or so of pixels in memory, but a raster indexes its pixels with an int, so a JPEG file can only
+ * be written from an image of at most {@link #MAX_WHOLE_PIXELS} pixels.
+ */
+public class PixelBufferImage implements RenderedImage {
+  /**
+   * This field represents the colour model of the pixels, one int per pixel holding rgb.
+   */
+  private static final ColorModel RGB = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
+  /**
+   * This field represents the most pixels the whole image can have when it is read at once.
+   */
+  public static final long MAX_WHOLE_PIXELS = Integer.MAX_VALUE;
+  /**
+   * This field represents the pixel buffer that is read.
+   */
+  private final PixelBuffer buffer;
+
+  /**
+   * This constructs an image over a pixel buffer. The buffer is not copied.
+   *
+   * @param buffer the pixel buffer to read.
+   */
+  public PixelBufferImage(PixelBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public Vector<RenderedImage> getSources() {
+    return null;
+  }
+
+  @Override
+  public Object getProperty(String name) {
+    //The awt image class is named in full because this project has its own Image class.
+    return java.awt.Image.UndefinedProperty;
+  }
+
+  @Override
+  public String[] getPropertyNames() {
+    return null;
+  }
+
+  @Override
+  public ColorModel getColorModel() {
+    return RGB;
+  }
+
+  @Override
+  public SampleModel getSampleModel() {
+    return RGB.createCompatibleSampleModel(getWidth(), 1);
+  }
+
+  @Override
+  public int getWidth() {
+    return buffer.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return buffer.getHeight();
+  }
+
+  @Override
+  public int getMinX() {
+    return 0;
+  }
+
+  @Override
+  public int getMinY() {
+    return 0;
+  }
+
+  @Override
+  public int getNumXTiles() {
+    return 1;
+  }
+
+  @Override
+  public int getNumYTiles() {
+    return getHeight();
+  }
+
+  @Override
+  public int getMinTileX() {
+    return 0;
+  }
+
+  @Override
+  public int getMinTileY() {
+    return 0;
+  }
+
+  @Override
+  public int getTileWidth() {
+    return getWidth();
+  }
+
+  @Override
+  public int getTileHeight() {
+    return 1;
+  }
+
+  @Override
+  public int getTileGridXOffset() {
+    return 0;
+  }
+
+  @Override
+  public int getTileGridYOffset() {
+    return 0;
+  }
+
+  @Override
+  public Raster getTile(int tileX, int tileY) {
+    return getData(new Rectangle(0, tileY, getWidth(), 1));
+  }
+
+  @Override
+  public Raster getData() {
+    int width = getWidth();
+    int height = getHeight();
+    if ((long) width * height > MAX_WHOLE_PIXELS) {
+      throw new IllegalStateException("The image has too many pixels to be read at once.");
+    }
+    return Raster.createRaster(RGB.createCompatibleSampleModel(width, height),
+            new RowDataBuffer(buffer), new Point(0, 0));
+  }
+
+  @Override
+  public Raster getData(Rectangle rect) {
+    return copyData(Raster.createWritableRaster(
+            RGB.createCompatibleSampleModel(rect.width, rect.height), new Point(rect.x, rect.y)));
+  }
+
+  @Override
+  public WritableRaster copyData(WritableRaster raster) {
+    if (raster == null) {
+      raster = Raster.createWritableRaster(RGB.createCompatibleSampleModel(getWidth(),
+              getHeight()), null);
+    }
+    Rectangle area = raster.getBounds().intersection(new Rectangle(0, 0, getWidth(),
+            getHeight()));
+    int[] row = new int[getWidth()];
+    for (int j = area.y; j < area.y + area.height; j++) {
+      buffer.getRow(j, row);
+      raster.setDataElements(area.x, j, area.width, 1,
+              area.x == 0 ? row : Arrays.copyOfRange(row, area.x, area.x + area.width));
+    }
+    return raster;
+  }
+
+  /**
+   * This class represents the data of a whole image read from a pixel buffer a row at a time. The
+   * last row read is kept, so reading the pixels in order reads each row from the buffer once.
+   * Writing is not supported.
+   */
+  private static final class RowDataBuffer extends DataBuffer {
+    /**
+     * This field represents the pixel buffer that is read.
+     */
+    private final PixelBuffer buffer;
+    /**
+     * This field represents the packed rgb values of the last row read.
+     */
+    private final int[] row;
+    /**
+     * This field represents the index of the last row read, or -1 before the first.
+     */
+    private int current;
+
+    /**
+     * This constructs the data of a pixel buffer.
+     *
+     * @param buffer the pixel buffer to read.
+     */
+    RowDataBuffer(PixelBuffer buffer) {
+      super(DataBuffer.TYPE_INT, buffer.getWidth() * buffer.getHeight());
+      this.buffer = buffer;
+      this.row = new int[buffer.getWidth()];
+      this.current = -1;
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+      int width = row.length;
+      int j = i / width;
+      if (j != current) {
+        buffer.getRow(j, row);
+        current = j;
+      }
+      return row[i - j * width];
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+      throw new UnsupportedOperationException("The pixels of a saved image cannot be changed.");
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * This enum lists the ways an image can be laid out in memory. It is used by the image manager
+ * and the model to allocate new pixel buffers without depending on a particular implementation.
+ * The layout used for new images can be chosen with the image.layout system property, and it
+ * defaults to the packed layout.
+ */
+public enum PixelLayout {
+  /**
+   * One int per pixel holding all three channels. This is the most compact layout.
+   */
+  PACKED {
+    @Override
+    public PixelBuffer allocate(int width, int height) {
+      return new PackedPixelBuffer(width, height);
+    }
+  },
+  /**
+   * One byte per channel, three bytes per pixel. Values are clamped when they are stored.
+   */
+  BYTE {
+    @Override
+    public PixelBuffer allocate(int width, int height) {
+      return new BytePixelBuffer(width, height);
+    }
+  },
+  /**
+   * One int array per channel. Values are clamped when they are stored.
+   */
+  PLANAR {
+    @Override
+    public PixelBuffer allocate(int width, int height) {
+      return new PlanarPixelBuffer(width, height);
+    }
+  },
+  /**
+   * One int per pixel, like the packed layout, stored in a memory mapped scratch file outside of
+   * the heap. Buffers with this layout should be closed when they are no longer needed.
+   */
+  MAPPED {
+    @Override
+    public PixelBuffer allocate(int width, int height) {
+      return new MappedPixelBuffer(width, height);
+    }
+  };
+
+  /**
+   * This method allocates a new black buffer of the given size with this layout.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @return the new buffer.
+   */
+  public abstract PixelBuffer allocate(int width, int height);
+
+  /**
+   * This method gets the layout used for new images. It reads the image.layout system property
+   * and falls back to the packed layout if the property is missing or not recognized.
+   *
+   * @return the layout used for new images.
+   */
+  public static PixelLayout getDefault() {
+    String name = System.getProperty("image.layout", PACKED.name());
+    try {
+      return PixelLayout.valueOf(name.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return PACKED;
+    }
+  }
+}
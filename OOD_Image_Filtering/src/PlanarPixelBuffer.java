@@ -0,0 +1,77 @@
+/**
+ * This class represents a pixel buffer that keeps one flat int array per channel. Each channel
+ * is stored in row order and values are clamped to 0 to 255 when they are stored, like every other
+ * layout. This layout suits operations that work on one channel at a time, such as convolution.
+ */
+public class PlanarPixelBuffer implements PixelBuffer {
+  /**
+   * This field represents the red, green and blue planes of this buffer.
+   */
+  private final int[][] planes;
+  /**
+   * This field represents the width of this buffer.
+   */
+  private final int width;
+  /**
+   * This field represents the height of this buffer.
+   */
+  private final int height;
+
+  /**
+   * This constructs a black planar buffer of the given size.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @throws NegativeArraySizeException if either dimension is negative.
+   */
+  public PlanarPixelBuffer(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Dimensions cannot be negative.");
+    }
+    this.planes = new int[3][width * height];
+    this.width = width;
+    this.height = height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getChannel(int row, int col, int channel) {
+    return planes[channel][row * width + col];
+  }
+
+  @Override
+  public void setChannel(int row, int col, int channel, int value) {
+    planes[channel][row * width + col] = PixelBuffer.clamp(value);
+  }
+
+  @Override
+  public void setRGB(int row, int col, int r, int g, int b) {
+    int index = row * width + col;
+    planes[0][index] = PixelBuffer.clamp(r);
+    planes[1][index] = PixelBuffer.clamp(g);
+    planes[2][index] = PixelBuffer.clamp(b);
+  }
+
+  @Override
+  public PixelBuffer create(int width, int height) {
+    return new PlanarPixelBuffer(width, height);
+  }
+
+  @Override
+  public PixelBuffer copy() {
+    PlanarPixelBuffer copy = new PlanarPixelBuffer(width, height);
+    for (int i = 0; i < 3; i++) {
+      System.arraycopy(planes[i], 0, copy.planes[i], 0, planes[i].length);
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * This interface represents an operation that changes each pixel using only the old value of that
+ * pixel, such as gray scale, sepia tone or any colour matrix. Because no pixel depends on its
+ * neighbours, several of these operations can be fused: each row is read once, every operation
+ * is run on it while it is still in the cache, and it is written once. Each operation still
+ * clamps its own results, so the fused operation gives exactly the same pixels as running the
+ * operations one after another. Each row only needs the same row of its source, so every
+ * operation can also run as a stage of a ScanlinePipeline.
+ */
+public interface PointwiseOp extends ScanlineStage {
+
+  /**
+   * This method applies this operation to one row of packed rgb values in place. The values
+   * stored back must be clamped to 0 to 255.
+   *
+   * @param rgb   the packed rgb values of the row.
+   * @param width the number of pixels in the row.
+   */
+  void applyRow(int[] rgb, int width);
+
+  /**
+   * This method makes an operation that runs this operation and then the given one on each row,
+   * in one pass over the image.
+   *
+   * @param next the operation to run after this one.
+   * @return the fused operation.
+   */
+  default PointwiseOp andThen(PointwiseOp next) {
+    return (rgb, width) -> {
+      applyRow(rgb, width);
+      next.applyRow(rgb, width);
+    };
+  }
+
+  /**
+   * This method applies this operation to every pixel of the source buffer and returns the result
+   * in a new buffer with the same layout. The rows are split into bands that are worked on at the
+   * same time. The source buffer is not changed.
+   *
+   * @param source the pixels to transform.
+   * @return the transformed pixels.
+   */
+  default PixelBuffer apply(PixelBuffer source) {
+    int width = source.getWidth();
+    PixelBuffer result = source.create(width, source.getHeight());
+    RowBands.run(source.getHeight(), (from, to) -> {
+      int[] row = new int[width];
+      for (int j = from; j < to; j++) {
+        source.getRow(j, row);
+        applyRow(row, width);
+        result.setRow(j, row);
+      }
+    });
+    return result;
+  }
+
+  @Override
+  default int getReach() {
+    return 0;
+  }
+
+  @Override
+  default Cursor open(PixelBuffer source) {
+    return (row, rgb) -> {
+      source.getRow(row, rgb);
+      applyRow(rgb, source.getWidth());
+    };
+  }
+}
@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represents a pixel buffer made of solid rectangles on a black background, such as
+ * the rainbows, checkerboard and flags. Only the rectangles are stored, in the order they were
+ * painted, so the size of the buffer costs no memory. A row is worked out when it is read by
+ * filling one run of pixels for every rectangle that crosses it, later rectangles over earlier
+ * ones, which makes reading a row cost its width plus the number of rectangles.
+ *
+ * <p>The first time a pixel is written the rectangles are painted into an ordinary buffer with
+ * the default layout, and every read and write after that goes to that buffer. Filters that make
+ * a new buffer for their result never write to this one, so an image that is only generated and
+ * saved is never held in memory as pixels.
+ */
+public class ProceduralPixelBuffer implements PixelBuffer {
+  /**
+   * This field represents the width of this buffer.
+   */
+  private final int width;
+  /**
+   * This field represents the height of this buffer.
+   */
+  private final int height;
+  /**
+   * This field represents the rectangles painted on this buffer, each one the first column, the
+   * first row, the column after the last, the row after the last and the packed rgb colour. They
+   * are already cut to the edges of this buffer.
+   */
+  private final List<int[]> shapes;
+  /**
+   * This field represents the painted pixels once a pixel has been written, or null before that.
+   */
+  private volatile PixelBuffer pixels;
+
+  /**
+   * This constructs a black procedural buffer of the given size.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @throws NegativeArraySizeException if either dimension is negative.
+   */
+  public ProceduralPixelBuffer(int width, int height) {
+    this(width, height, new ArrayList<>());
+  }
+
+  /**
+   * This constructs a procedural buffer of the given size holding the given rectangles.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @param shapes the rectangles painted on the buffer.
+   * @throws NegativeArraySizeException if either dimension is negative.
+   */
+  private ProceduralPixelBuffer(int width, int height, List<int[]> shapes) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Dimensions cannot be negative.");
+    }
+    this.width = width;
+    this.height = height;
+    this.shapes = shapes;
+  }
+
+  /**
+   * This method paints a solid rectangle over this buffer. The parts of the rectangle outside of
+   * the buffer are left out and the colour is clamped to be between 0 and 255.
+   *
+   * @param x      the first column of the rectangle.
+   * @param y      the first row of the rectangle.
+   * @param height the number of rows in the rectangle.
+   * @param width  the number of columns in the rectangle.
+   * @param r      the red value of the colour.
+   * @param g      the green value of the colour.
+   * @param b      the blue value of the colour.
+   */
+  public synchronized void fillRect(int x, int y, int height, int width, int r, int g, int b) {
+    int left = Math.max(0, x);
+    int top = Math.max(0, y);
+    int right = (int) Math.min(this.width, (long) x + Math.max(0, width));
+    int bottom = (int) Math.min(this.height, (long) y + Math.max(0, height));
+    if (left >= right || top >= bottom) {
+      return;
+    }
+    if (pixels != null) {
+      for (int j = top; j < bottom; j++) {
+        for (int k = left; k < right; k++) {
+          pixels.setRGB(j, k, r, g, b);
+        }
+      }
+      return;
+    }
+    int rgb = (PixelBuffer.clamp(r) << 16) | (PixelBuffer.clamp(g) << 8) | PixelBuffer.clamp(b);
+    shapes.add(new int[]{left, top, right, bottom, rgb});
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getChannel(int row, int col, int channel) {
+    return (getRGB(row, col) >> (16 - 8 * channel)) & 0xFF;
+  }
+
+  @Override
+  public int getRGB(int row, int col) {
+    PixelBuffer painted = this.pixels;
+    if (painted != null) {
+      return painted.getRGB(row, col);
+    }
+    if (row < 0 || row >= height || col < 0 || col >= width) {
+      throw new ArrayIndexOutOfBoundsException("Pixel is outside of the buffer.");
+    }
+    for (int i = shapes.size() - 1; i >= 0; i--) {
+      int[] shape = shapes.get(i);
+      if (col >= shape[0] && row >= shape[1] && col < shape[2] && row < shape[3]) {
+        return shape[4];
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public void getRow(int row, int[] rgb) {
+    PixelBuffer painted = this.pixels;
+    if (painted != null) {
+      painted.getRow(row, rgb);
+      return;
+    }
+    if (row < 0 || row >= height) {
+      throw new ArrayIndexOutOfBoundsException("Row is outside of the buffer.");
+    }
+    Arrays.fill(rgb, 0, width, 0);
+    for (int[] shape : shapes) {
+      if (row >= shape[1] && row < shape[3]) {
+        Arrays.fill(rgb, shape[0], shape[2], shape[4]);
+      }
+    }
+  }
+
+  @Override
+  public void setChannel(int row, int col, int channel, int value) {
+    paint().setChannel(row, col, channel, value);
+  }
+
+  @Override
+  public void setRGB(int row, int col, int r, int g, int b) {
+    paint().setRGB(row, col, r, g, b);
+  }
+
+  @Override
+  public void setRow(int row, int[] rgb) {
+    paint().setRow(row, rgb);
+  }
+
+  @Override
+  public PixelBuffer create(int width, int height) {
+    return PixelLayout.getDefault().allocate(width, height);
+  }
+
+  @Override
+  public synchronized PixelBuffer copy() {
+    if (pixels != null) {
+      return pixels.copy();
+    }
+    return new ProceduralPixelBuffer(width, height, new ArrayList<>(shapes));
+  }
+
+  @Override
+  public boolean isInRange() {
+    PixelBuffer painted = this.pixels;
+    return painted == null || painted.isInRange();
+  }
+
+  /**
+   * This method checks whether this buffer still only holds rectangles, so that reading it costs
+   * no memory for its pixels.
+   *
+   * @return true if no pixel has been written yet.
+   */
+  public boolean isProcedural() {
+    return pixels == null;
+  }
+
+  /**
+   * This is a helper method that paints the rectangles into a buffer with the default layout the
+   * first time a pixel is written, and gets that buffer.
+   *
+   * @return the painted pixels.
+   */
+  private synchronized PixelBuffer paint() {
+    if (pixels == null) {
+      PixelBuffer painted = PixelLayout.getDefault().allocate(width, height);
+      int[] row = new int[width];
+      for (int j = 0; j < height; j++) {
+        getRow(j, row);
+        painted.setRow(j, row);
+      }
+      pixels = painted;
+      shapes.clear();
+    }
+    return pixels;
+  }
+}
@@ -0,0 +1,169 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * This class represents the conversion of pixels between buffered images and pixel buffers.
+ * Buffered images of the types the image readers give back for ordinary files, TYPE_INT_RGB,
+ * TYPE_INT_ARGB, TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR and TYPE_BYTE_GRAY, are read straight from the
+ * array behind their raster, a row at a time, without going through their colour model for each
+ * pixel. Any other type falls back to getRGB. Images made for display are TYPE_INT_RGB and are
+ * filled straight through their array. Rows are split into bands with RowBands, so large images
+ * are converted on every thread.
+ *
+ * <p>A gray image is copied with its gray value in all three channels. getRGB would instead treat
+ * the value as linear and brighten it, so gray files now load with the values they hold.
+ */
+public final class RasterConverter {
+
+  /**
+   * This constructor is private because this class only has static methods.
+   */
+  private RasterConverter() {
+  }
+
+  /**
+   * This method copies the pixels of a buffered image into a pixel buffer of the same size.
+   *
+   * @param image  the image to copy from.
+   * @param target the pixel buffer to copy into.
+   * @throws IllegalArgumentException if the buffer is not the size of the image.
+   */
+  public static void toPixels(BufferedImage image, PixelBuffer target) {
+    if (target.getHeight() != image.getHeight()) {
+      throw new IllegalArgumentException("The buffer is not the size of the image.");
+    }
+    toPixels(image, target, 0);
+  }
+
+  /**
+   * This method copies the pixels of a buffered image into a strip of rows of a pixel buffer as
+   * wide as the image, starting from the given row of the buffer.
+   *
+   * @param image  the image to copy from.
+   * @param target the pixel buffer to copy into.
+   * @param top    the row of the buffer that the first row of the image is copied into.
+   * @throws IllegalArgumentException if the buffer is not as wide as the image or the strip does
+   *                                  not fit in it.
+   */
+  public static void toPixels(BufferedImage image, PixelBuffer target, int top) {
+    int width = image.getWidth();
+    if (target.getWidth() != width || top < 0
+            || top + (long) image.getHeight() > target.getHeight()) {
+      throw new IllegalArgumentException("The image does not fit in the buffer.");
+    }
+    RowBands.run(image.getHeight(), (from, to) -> {
+      int[] row = new int[width];
+      for (int j = from; j < to; j++) {
+        readRow(image, j, row, 0);
+        target.setRow(top + j, row);
+      }
+    });
+  }
+
+  /**
+   * This method copies the pixels of a buffered image into an array of packed rgb values, one row
+   * after another.
+   *
+   * @param image the image to copy from.
+   * @param rgb   the array to copy into, at least as long as the number of pixels in the image.
+   */
+  public static void toRGB(BufferedImage image, int[] rgb) {
+    int width = image.getWidth();
+    RowBands.run(image.getHeight(), (from, to) -> {
+      for (int j = from; j < to; j++) {
+        readRow(image, j, rgb, j * width);
+      }
+    });
+  }
+
+  /**
+   * This method copies one row of a buffered image into an array of packed rgb values.
+   *
+   * @param image the image to copy from.
+   * @param row   the row to copy.
+   * @param rgb   the array to copy into, at least as long as the width of the image.
+   */
+  public static void getRow(BufferedImage image, int row, int[] rgb) {
+    readRow(image, row, rgb, 0);
+  }
+
+  /**
+   * This method copies the pixels of a pixel buffer into a new buffered image of type
+   * TYPE_INT_RGB. Each row is read from the buffer straight into the array behind the image.
+   *
+   * @param buffer the pixel buffer to copy from.
+   * @return the buffered image holding the same pixels.
+   */
+  public static BufferedImage toBufferedImage(PixelBuffer buffer) {
+    int width = buffer.getWidth();
+    BufferedImage output = new BufferedImage(width, buffer.getHeight(),
+            BufferedImage.TYPE_INT_RGB);
+    int[] data = ((DataBufferInt) output.getRaster().getDataBuffer()).getData();
+    RowBands.run(buffer.getHeight(), (from, to) -> {
+      int[] row = new int[width];
+      for (int j = from; j < to; j++) {
+        buffer.getRow(j, row);
+        System.arraycopy(row, 0, data, j * width, width);
+      }
+    });
+    return output;
+  }
+
+  /**
+   * This is a helper method that reads one row of a buffered image as packed rgb values,
+   * straight from the array behind it if its type is one of the known ones and through getRGB
+   * otherwise.
+   *
+   * @param image  the image to read.
+   * @param j      the row to read.
+   * @param rgb    the array to write the row into.
+   * @param offset the index in the array of the first pixel of the row.
+   */
+  private static void readRow(BufferedImage image, int j, int[] rgb, int offset) {
+    int width = image.getWidth();
+    Raster raster = image.getRaster();
+    DataBuffer data = raster.getDataBuffer();
+    int x = -raster.getSampleModelTranslateX();
+    int y = j - raster.getSampleModelTranslateY();
+    switch (image.getType()) {
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB: {
+        SinglePixelPackedSampleModel model =
+                (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int[] pixels = ((DataBufferInt) data).getData();
+        int start = data.getOffset() + model.getOffset(x, y);
+        for (int k = 0; k < width; k++) {
+          rgb[offset + k] = pixels[start + k] & 0xFFFFFF;
+        }
+        return;
+      }
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+      case BufferedImage.TYPE_BYTE_GRAY: {
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+        byte[] pixels = ((DataBufferByte) data).getData();
+        int step = model.getPixelStride();
+        int start = data.getOffset() + y * model.getScanlineStride() + x * step;
+        int[] bands = model.getBandOffsets();
+        int red = bands[0];
+        int green = bands.length > 2 ? bands[1] : red;
+        int blue = bands.length > 2 ? bands[2] : red;
+        for (int k = 0, i = start; k < width; k++, i += step) {
+          rgb[offset + k] = ((pixels[i + red] & 0xFF) << 16) | ((pixels[i + green] & 0xFF) << 8)
+                  | (pixels[i + blue] & 0xFF);
+        }
+        return;
+      }
+      default:
+        image.getRGB(0, j, width, 1, rgb, offset, width);
+        for (int k = 0; k < width; k++) {
+          rgb[offset + k] &= 0xFFFFFF;
+        }
+    }
+  }
+}
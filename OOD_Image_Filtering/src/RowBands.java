@@ -0,0 +1,169 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class represents the shared way filters split an image into bands of rows and work on
+ * the bands at the same time. Bands are run as tasks on a fork/join pool, so idle threads steal
+ * the bands that are left when the others finish early. The number of threads comes from the
+ * image.parallelism system property, which the driver sets from its -parallelism flag, and
+ * defaults to the number of processors. A parallelism of one runs every band on the calling
+ * thread. A filter that gives every row the same result whichever band it lands in produces the
+ * same pixels at any parallelism.
+ */
+public final class RowBands {
+  /**
+   * This field represents the fewest rows a band is split down to, so that the work of each task
+   * stays well above the cost of scheduling it.
+   */
+  private static final int MIN_ROWS = 16;
+  /**
+   * This field represents the number of bands made for each thread, so that threads that finish
+   * early have work to steal.
+   */
+  private static final int BANDS_PER_THREAD = 4;
+  /**
+   * This field represents the pool the bands run on, or null until it is first needed.
+   */
+  private static ForkJoinPool pool;
+
+  /**
+   * This interface represents the work done on one band of rows.
+   */
+  public interface Band {
+    /**
+     * This method does the work for one band of rows.
+     *
+     * @param from the first row of the band.
+     * @param to   the row after the last row of the band.
+     */
+    void apply(int from, int to);
+  }
+
+  /**
+   * This constructor is private because this class only has static methods.
+   */
+  private RowBands() {
+  }
+
+  /**
+   * This method gets the number of threads used to work on bands. It reads the
+   * image.parallelism system property and falls back to the number of processors if the
+   * property is missing, not a number or not positive.
+   *
+   * @return the number of threads used to work on bands.
+   */
+  public static int getParallelism() {
+    String value = System.getProperty("image.parallelism");
+    if (value != null) {
+      try {
+        int parallelism = Integer.parseInt(value.trim());
+        if (parallelism > 0) {
+          return parallelism;
+        }
+      } catch (NumberFormatException e) {
+        // Fall back to the number of processors.
+      }
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * This method splits the rows from 0 to the given height into bands and runs the work on each
+   * of them, returning once every band is done. The bands do not overlap and together cover every
+   * row once.
+   *
+   * @param height the number of rows to cover.
+   * @param band   the work to do on each band.
+   */
+  public static void run(int height, Band band) {
+    run(height, MIN_ROWS, band);
+  }
+
+  /**
+   * This method splits the items from 0 to the given count into bands and runs the work on each
+   * of them, returning once every band is done. It is used when each item is more work than a
+   * single row, such as a row of tiles, so that bands can be smaller.
+   *
+   * @param count   the number of items to cover.
+   * @param minimum the fewest items a band is split down to.
+   * @param band    the work to do on each band.
+   */
+  public static void run(int count, int minimum, Band band) {
+    int parallelism = getParallelism();
+    if (parallelism == 1 || count <= minimum) {
+      band.apply(0, count);
+      return;
+    }
+    int rows = Math.max(minimum, count / (parallelism * BANDS_PER_THREAD));
+    getPool(parallelism).invoke(new Split(band, 0, count, rows));
+  }
+
+  /**
+   * This is a helper method that gets the pool for the given parallelism. The pool is made again
+   * if the parallelism has changed since it was last used.
+   *
+   * @param parallelism the number of threads in the pool.
+   * @return the pool.
+   */
+  private static synchronized ForkJoinPool getPool(int parallelism) {
+    if (pool == null || pool.getParallelism() != parallelism) {
+      if (pool != null) {
+        pool.shutdown();
+      }
+      pool = new ForkJoinPool(parallelism);
+    }
+    return pool;
+  }
+
+  /**
+   * This class represents a range of rows that is split in half until it is small enough to be
+   * worked on directly.
+   */
+  private static final class Split extends RecursiveAction {
+    /**
+     * This field represents the version of the class for serialization, which tasks declare.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * This field represents the work to do on each band.
+     */
+    private final Band band;
+    /**
+     * This field represents the first row of the range.
+     */
+    private final int from;
+    /**
+     * This field represents the row after the last row of the range.
+     */
+    private final int to;
+    /**
+     * This field represents the most rows worked on directly by one task.
+     */
+    private final int rows;
+
+    /**
+     * This constructs a range of rows.
+     *
+     * @param band the work to do on each band.
+     * @param from the first row of the range.
+     * @param to   the row after the last row of the range.
+     * @param rows the most rows worked on directly by one task.
+     */
+    Split(Band band, int from, int to, int rows) {
+      this.band = band;
+      this.from = from;
+      this.to = to;
+      this.rows = rows;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= rows) {
+        band.apply(from, to);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new Split(band, from, middle, rows), new Split(band, middle, to, rows));
+    }
+  }
+}
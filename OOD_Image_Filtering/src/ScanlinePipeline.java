@@ -0,0 +1,298 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class represents a chain of filters that is run from one image file to another while
+ * holding only a few rows of the image in memory. The source file is decoded in strips of whole
+ * rows through source regions of its image reader. Each filter reads from a window of rows of
+ * the one before it, just tall enough for the rows it reaches above and below, and works out its
+ * own rows as the next filter asks for them. The file writer asks the last filter for its rows
+ * from the top down as it encodes them, so rows are pulled through the whole chain one at a time
+ * and nothing runs ahead of the writer. The memory used grows with the width of the image times
+ * the height of the kernels, and not with the height of the image.
+ *
+ * <p>Strips are at most image.stripBytes bytes of pixels at four bytes a pixel, 16 megabytes by
+ * default. The TIFF reader only decodes the strips and tiles a region covers. The PNG and JPEG
+ * readers decode from the top of the file to reach a region, so taller strips mean fewer passes
+ * over those files. PPM, PGM and PAM files are read and written through NetpbmIO instead, a row
+ * at a time straight from and to the mapped file.
+ */
+public class ScanlinePipeline {
+  /**
+   * This field represents the formats whose writers ask for rows from the top down, which are
+   * the only formats a pipeline can write.
+   */
+  private static final List<String> ROW_ORDER_FORMATS = Arrays.asList("png", "jpg", "jpeg",
+          "tif", "tiff");
+  /**
+   * This field represents the filters of the chain, in the order they are run.
+   */
+  private final List<ScanlineStage> stages;
+
+  /**
+   * This constructs a pipeline that runs the given filters one after another.
+   *
+   * @param stages the filters to run, in order.
+   */
+  public ScanlinePipeline(List<ScanlineStage> stages) {
+    this.stages = new ArrayList<>(stages);
+  }
+
+  /**
+   * This method checks whether a pipeline can write a file of the given name. The BMP and GIF
+   * writers ask for the bottom row first, so those files have to be written from a whole image.
+   * Netpbm files are written from the top down by NetpbmIO.
+   *
+   * @param filename the name of the file to write, with its extension.
+   * @return true if the writer for the file asks for rows from the top down.
+   */
+  public static boolean canWrite(String filename) {
+    return NetpbmIO.isNetpbm(filename)
+            || ROW_ORDER_FORMATS.contains(ImageUtil.getFormat(filename).toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * This method runs the filters over an image file and writes the result to another file.
+   *
+   * @param input  the path of the image file to read.
+   * @param output the path of the file to write, whose extension gives its format.
+   * @throws IOException              if the input cannot be read or the output cannot be written.
+   * @throws IllegalArgumentException if the output is not in a format a pipeline can write.
+   */
+  public void run(String input, String output) throws IOException {
+    if (!canWrite(output)) {
+      throw new IllegalArgumentException("A pipeline cannot write " + output);
+    }
+    if (NetpbmIO.isNetpbm(input)) {
+      NetpbmIO source = NetpbmIO.open(new File(input));
+      write(source.getWidth(), source.getHeight(), source::getRow, output);
+      return;
+    }
+    try (ImageLoader loader = new ImageLoader(new File(input))) {
+      int width = loader.getWidth();
+      int height = loader.getHeight();
+      write(width, height, new StripCursor(loader, width, height), output);
+    }
+  }
+
+  /**
+   * This is a helper method that chains the filters onto the rows of the source and writes the
+   * rows of the last one to the output.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param source the cursor that reads the rows of the source file.
+   * @param output the path of the file to write.
+   * @throws IOException if the source cannot be read or the output cannot be written.
+   */
+  private void write(int width, int height, ScanlineStage.Cursor source, String output)
+          throws IOException {
+    PixelBuffer rows = new RowWindow(width, height, windowRows(0), source);
+    for (int i = 0; i < stages.size(); i++) {
+      rows = new RowWindow(width, height, windowRows(i + 1), stages.get(i).open(rows));
+    }
+    try {
+      if (NetpbmIO.isNetpbm(output)) {
+        NetpbmIO.write(rows, output, true);
+      } else {
+        ImageUtil.writeImage(rows, output);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * This is a helper method that works out how many rows the window read by a filter holds.
+   * It is enough for the rows the filter reaches above and below the row it is working out,
+   * and one row for the writer after the last filter.
+   *
+   * @param stage the index of the filter that reads the window.
+   * @return the number of rows in the window.
+   */
+  private int windowRows(int stage) {
+    if (stage == stages.size()) {
+      return 1;
+    }
+    return 2 * stages.get(stage).getReach() + 1;
+  }
+
+  /**
+   * This class represents the rows of a filter, worked out in order as they are asked for. Only
+   * the last few rows are kept. Asking for a row that has been dropped is an error, as is
+   * writing to the rows.
+   */
+  private static final class RowWindow implements PixelBuffer {
+    /**
+     * This field represents the width of the image.
+     */
+    private final int width;
+    /**
+     * This field represents the height of the image.
+     */
+    private final int height;
+    /**
+     * This field represents the rows kept, row j in slot j modulo the number of slots.
+     */
+    private final int[][] rows;
+    /**
+     * This field represents the filter that works out the rows.
+     */
+    private final ScanlineStage.Cursor cursor;
+    /**
+     * This field represents the next row to be worked out.
+     */
+    private int next;
+
+    /**
+     * This constructs a window over the rows of a filter.
+     *
+     * @param width    the width of the image.
+     * @param height   the height of the image.
+     * @param capacity the number of rows kept.
+     * @param cursor   the filter that works out the rows.
+     */
+    RowWindow(int width, int height, int capacity, ScanlineStage.Cursor cursor) {
+      this.width = width;
+      this.height = height;
+      this.rows = new int[capacity][width];
+      this.cursor = cursor;
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public int getChannel(int row, int col, int channel) {
+      return (getRGB(row, col) >> (16 - 8 * channel)) & 0xFF;
+    }
+
+    @Override
+    public void setChannel(int row, int col, int channel, int value) {
+      throw new UnsupportedOperationException("The rows of a pipeline cannot be changed.");
+    }
+
+    @Override
+    public int getRGB(int row, int col) {
+      if (col < 0 || col >= width) {
+        throw new ArrayIndexOutOfBoundsException("Pixel is outside of the buffer.");
+      }
+      return row(row)[col];
+    }
+
+    @Override
+    public void getRow(int row, int[] rgb) {
+      System.arraycopy(row(row), 0, rgb, 0, width);
+    }
+
+    @Override
+    public void setRow(int row, int[] rgb) {
+      throw new UnsupportedOperationException("The rows of a pipeline cannot be changed.");
+    }
+
+    @Override
+    public PixelBuffer create(int width, int height) {
+      return PixelLayout.getDefault().allocate(width, height);
+    }
+
+    @Override
+    public PixelBuffer copy() {
+      throw new UnsupportedOperationException("The rows of a pipeline cannot be copied.");
+    }
+
+    @Override
+    public boolean isInRange() {
+      return true;
+    }
+
+    /**
+     * This is a helper method that gets a row, working out the rows up to it first if it has
+     * not been reached yet.
+     *
+     * @param row the row to get.
+     * @return the packed rgb values of the row.
+     * @throws IllegalStateException if the row has already been dropped from the window.
+     */
+    private int[] row(int row) {
+      if (row < 0 || row >= height) {
+        throw new ArrayIndexOutOfBoundsException("Row is outside of the buffer.");
+      }
+      while (next <= row) {
+        cursor.nextRow(next, rows[next % rows.length]);
+        next++;
+      }
+      if (row < next - rows.length) {
+        throw new IllegalStateException("Row " + row + " has already left the window.");
+      }
+      return rows[row % rows.length];
+    }
+  }
+
+  /**
+   * This class represents the rows of the source file, decoded a strip at a time.
+   */
+  private static final class StripCursor implements ScanlineStage.Cursor {
+    /**
+     * This field represents the loader of the source file.
+     */
+    private final ImageLoader loader;
+    /**
+     * This field represents the height of the image.
+     */
+    private final int height;
+    /**
+     * This field represents the number of rows in a strip.
+     */
+    private final int stripRows;
+    /**
+     * This field represents the strip last decoded, or null before the first.
+     */
+    private BufferedImage strip;
+    /**
+     * This field represents the first row of the strip last decoded.
+     */
+    private int top;
+
+    /**
+     * This constructs the cursor over a source file.
+     *
+     * @param loader the loader of the source file.
+     * @param width  the width of the image.
+     * @param height the height of the image.
+     */
+    StripCursor(ImageLoader loader, int width, int height) {
+      long stripBytes = Long.getLong("image.stripBytes", 16L << 20);
+      this.loader = loader;
+      this.height = height;
+      this.stripRows = (int) Math.max(1, Math.min(height, stripBytes / (4L * Math.max(1, width))));
+    }
+
+    @Override
+    public void nextRow(int row, int[] rgb) {
+      if (strip == null || row >= top + stripRows) {
+        //The old strip is let go first, so two strips are never held at once.
+        strip = null;
+        try {
+          strip = loader.readRows(row, Math.min(stripRows, height - row));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        top = row;
+      }
+      RasterConverter.getRow(strip, row - top, rgb);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/**
+ * This interface represents a filter that can be run over an image one row at a time, from the
+ * top row down, reading only the rows of its source near the row it is working out. Filters
+ * like this can be chained in a ScanlinePipeline, where each one reads from a small window of
+ * rows of the one before it, so an image can be filtered and saved without ever being held in
+ * memory whole.
+ */
+public interface ScanlineStage {
+
+  /**
+   * This method gets the number of rows above and below a row that this filter reads from its
+   * source to work out that row.
+   *
+   * @return the number of rows read on each side of a row.
+   */
+  int getReach();
+
+  /**
+   * This method starts running this filter over a source. The rows of the result are then asked
+   * for through the returned cursor in order, starting from the top row.
+   *
+   * @param source the pixels to filter. Only rows within the reach of the row being worked out
+   *               are read.
+   * @return the cursor that works out the rows of the result.
+   */
+  Cursor open(PixelBuffer source);
+
+  /**
+   * This interface represents a filter being run over one source, one row at a time.
+   */
+  interface Cursor {
+    /**
+     * This method works out the next row of the result.
+     *
+     * @param row the row to work out, one more than the row asked for before.
+     * @param rgb the array to store the row in as packed rgb values.
+     */
+    void nextRow(int row, int[] rgb);
+  }
+}
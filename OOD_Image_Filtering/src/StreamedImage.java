@@ -0,0 +1,306 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This class represents an image file that is filtered as it is streamed to another file, rather
+ * than loaded whole. Only the size of the image is read when it is opened. Filters that work
+ * out each row from a few rows around it (blur, sharpen, small kernels, gray, sepia, colour
+ * matrices, dither and ordered dither) are held back as stages of a ScanlinePipeline, and when
+ * the image is saved the file is read, filtered and written a strip of rows at a time.
+ *
+ * <p>Any other operation, such as a mosaic, a box blur, a kernel big enough to go through the
+ * Fourier transform, or reading the pixels, needs the whole image. The file is then loaded the
+ * usual way, the held back filters are run on it in order, and from then on this image passes
+ * every operation on to the loaded one. The same happens when saving to a format whose writer
+ * does not ask for rows from the top down, or over the file being streamed. The pixels are the
+ * same either way.
+ */
+public class StreamedImage implements ImageInterface, Closeable {
+  /**
+   * This field represents the path of the file that is streamed.
+   */
+  private final String fileName;
+  /**
+   * This field represents the manager that loads the file whole when it has to be.
+   */
+  private final ImageManagerInterface manager;
+  /**
+   * This field represents the width of the image.
+   */
+  private final int width;
+  /**
+   * This field represents the height of the image.
+   */
+  private final int height;
+  /**
+   * This field represents the filters held back, in order.
+   */
+  private final List<ScanlineStage> stages;
+  /**
+   * This field represents the method on a whole image that runs each held back filter, in order.
+   */
+  private final List<Consumer<ImageInterface>> calls;
+  /**
+   * This field represents the whole image once the file has been loaded, or null before that.
+   */
+  private ImageInterface image;
+
+  /**
+   * This constructs a streamed image of a file. Only the header of the file is read.
+   *
+   * @param fileName the path of the file to stream.
+   * @param manager  the manager that loads the file whole when it has to be.
+   * @throws IOException if the file cannot be read.
+   */
+  public StreamedImage(String fileName, ImageManagerInterface manager) throws IOException {
+    this.fileName = fileName;
+    this.manager = manager;
+    if (NetpbmIO.isNetpbm(fileName)) {
+      NetpbmIO file = NetpbmIO.open(new File(fileName));
+      this.width = file.getWidth();
+      this.height = file.getHeight();
+    } else {
+      try (ImageLoader loader = new ImageLoader(new File(fileName))) {
+        this.width = loader.getWidth();
+        this.height = loader.getHeight();
+      }
+    }
+    this.stages = new ArrayList<>();
+    this.calls = new ArrayList<>();
+  }
+
+  /**
+   * This constructs a streamed image that holds back the same filters as another one.
+   *
+   * @param other the streamed image to copy.
+   */
+  private StreamedImage(StreamedImage other) {
+    this.fileName = other.fileName;
+    this.manager = other.manager;
+    this.width = other.width;
+    this.height = other.height;
+    this.stages = new ArrayList<>(other.stages);
+    this.calls = new ArrayList<>(other.calls);
+  }
+
+  /**
+   * This method checks whether this image can be streamed to a file, which needs the file not to
+   * have been loaded whole, the output to be in a format written from the top down, and the
+   * output not to be the file being read.
+   *
+   * @param output the path of the file to write.
+   * @return true if the image can be streamed to the file.
+   * @throws IOException if the paths cannot be compared.
+   */
+  public boolean canStream(String output) throws IOException {
+    return image == null && ScanlinePipeline.canWrite(output)
+            && !new File(output).getCanonicalFile().equals(new File(fileName).getCanonicalFile());
+  }
+
+  /**
+   * This method streams the file through the held back filters into another file.
+   *
+   * @param output the path of the file to write.
+   * @throws IOException              if the file cannot be read or the output cannot be written.
+   * @throws IllegalArgumentException if the image cannot be streamed to the file.
+   */
+  public void stream(String output) throws IOException {
+    if (!canStream(output)) {
+      throw new IllegalArgumentException("This image cannot be streamed to " + output);
+    }
+    new ScanlinePipeline(stages).run(fileName, output);
+  }
+
+  @Override
+  public void blurImage() {
+    hold(ConvolutionEngine.blur(), ImageInterface::blurImage);
+  }
+
+  @Override
+  public void blurImage(double sigma) {
+    hold(new GaussianBlur(sigma), loaded -> loaded.blurImage(sigma));
+  }
+
+  @Override
+  public void sharpenImage() {
+    hold(ConvolutionEngine.sharpen(), ImageInterface::sharpenImage);
+  }
+
+  @Override
+  public void convolve(double[][] kernel) {
+    if (image != null || FftConvolution.isPreferred(kernel)) {
+      whole().convolve(kernel);
+      return;
+    }
+    double[][] copy = new double[kernel.length][];
+    for (int c = 0; c < kernel.length; c++) {
+      copy[c] = kernel[c].clone();
+    }
+    hold(new ConvolutionEngine(copy, ConvolutionEngine.BorderMode.CLAMP),
+            loaded -> loaded.convolve(copy));
+  }
+
+  @Override
+  public void boxBlur(int radius) {
+    whole().boxBlur(radius);
+  }
+
+  @Override
+  public void grayScale() {
+    hold(ColorMatrixOp.GRAY, ImageInterface::grayScale);
+  }
+
+  @Override
+  public void sepiaTone() {
+    hold(ColorMatrixOp.SEPIA, ImageInterface::sepiaTone);
+  }
+
+  @Override
+  public void colorMatrix(double[][] matrix) {
+    double[][] copy = new double[matrix.length][];
+    for (int c = 0; c < matrix.length; c++) {
+      copy[c] = matrix[c].clone();
+    }
+    hold(new ColorMatrixOp(copy), loaded -> loaded.colorMatrix(copy));
+  }
+
+  @Override
+  public void applyPointwise(PointwiseOp op) {
+    hold(op, loaded -> loaded.applyPointwise(op));
+  }
+
+  @Override
+  public void rainbowHorizontal(int height, int width) {
+    whole().rainbowHorizontal(height, width);
+  }
+
+  @Override
+  public void rainbowVertical(int height, int width) {
+    whole().rainbowVertical(height, width);
+  }
+
+  @Override
+  public void checkerBoard(int squareSize) {
+    whole().checkerBoard(squareSize);
+  }
+
+  @Override
+  public void flagFrance(int height, int width) {
+    whole().flagFrance(height, width);
+  }
+
+  @Override
+  public void flagSwitzerland(int size) {
+    whole().flagSwitzerland(size);
+  }
+
+  @Override
+  public void flagGreek(int height, int width) {
+    whole().flagGreek(height, width);
+  }
+
+  @Override
+  public void dither() {
+    hold(new DitherEngine(1), ImageInterface::dither);
+  }
+
+  @Override
+  public void orderedDither(int matrixSize) {
+    hold(new OrderedDither(matrixSize), loaded -> loaded.orderedDither(matrixSize));
+  }
+
+  @Override
+  public void mosaic(int seeds) {
+    whole().mosaic(seeds);
+  }
+
+  @Override
+  public void mosaic(int seeds, long randomSeed) {
+    whole().mosaic(seeds, randomSeed);
+  }
+
+  @Override
+  public ImageInterface snapshot() {
+    if (image != null) {
+      return image.snapshot();
+    }
+    return new StreamedImage(this);
+  }
+
+  @Override
+  public int[][][] getMyImage() {
+    return whole().getMyImage();
+  }
+
+  @Override
+  public PixelBuffer getPixelBuffer() {
+    return whole().getPixelBuffer();
+  }
+
+  @Override
+  public int getMyImageWidth() {
+    return image == null ? width : image.getMyImageWidth();
+  }
+
+  @Override
+  public int getMyImageHeight() {
+    return image == null ? height : image.getMyImageHeight();
+  }
+
+  /**
+   * This method closes the whole image if the file has been loaded into one that holds
+   * resources outside of the heap.
+   *
+   * @throws IOException if the whole image cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (image instanceof Closeable) {
+      ((Closeable) image).close();
+    }
+  }
+
+  /**
+   * This is a helper method that holds back a filter that can be streamed, or runs it on the
+   * whole image if the file has already been loaded.
+   *
+   * @param stage the filter as a stage of a pipeline.
+   * @param call  the method on a whole image that runs the filter.
+   */
+  private void hold(ScanlineStage stage, Consumer<ImageInterface> call) {
+    if (image != null) {
+      call.accept(image);
+      return;
+    }
+    stages.add(stage);
+    calls.add(call);
+  }
+
+  /**
+   * This is a helper method that gets the whole image, loading the file and running the held
+   * back filters on it the first time.
+   *
+   * @return the whole image.
+   * @throws UncheckedIOException if the file can no longer be read.
+   */
+  private ImageInterface whole() {
+    if (image == null) {
+      try {
+        image = manager.loadImage(fileName);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      for (Consumer<ImageInterface> call : calls) {
+        call.accept(image);
+      }
+      stages.clear();
+      calls.clear();
+    }
+    return image;
+  }
+}
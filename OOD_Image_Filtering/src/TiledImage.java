@@ -0,0 +1,49 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class represents an image whose pixels are split into tiles that are decoded from the
+ * image file only when they are first used. It offers the same operations as Image, and keeps at
+ * most a fixed number of bytes of tiles in memory while it runs them, so huge images can be worked
+ * on with a bounded working set. The image holds the file open and may write evicted tiles to a
+ * scratch file, so it must be closed once it is no longer needed.
+ */
+public class TiledImage extends Image implements Closeable {
+
+  /**
+   * This constructs a tiled image over an image file.
+   *
+   * @param file       the image file to read.
+   * @param tileSize   the width and height of a full tile.
+   * @param cacheBytes the most bytes of tiles kept in memory at once.
+   * @throws IOException if the file cannot be opened or no reader supports its format.
+   */
+  public TiledImage(File file, int tileSize, long cacheBytes) throws IOException {
+    this(TiledPixelBuffer.open(file, tileSize, cacheBytes));
+  }
+
+  /**
+   * This constructs a tiled image around an existing tiled pixel buffer. The image takes
+   * ownership of the buffer and closes it when the image is closed.
+   *
+   * @param myImage the tiled pixel buffer that holds this image.
+   */
+  public TiledImage(TiledPixelBuffer myImage) {
+    super(myImage);
+  }
+
+  /**
+   * This method closes this image, releasing the image file and deleting any scratch file. The
+   * image cannot be used after it has been closed.
+   *
+   * @throws IOException if the file or the scratch file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    PixelBuffer buffer = getPixelBuffer();
+    if (buffer instanceof Closeable) {
+      ((Closeable) buffer).close();
+    }
+  }
+}
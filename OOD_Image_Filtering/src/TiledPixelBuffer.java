@@ -0,0 +1,444 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * This class represents a pixel buffer that splits an image into square tiles. Tiles of an image
+ * read from a file are only decoded the first time one of their pixels is touched. The JPEG and
+ * PNG readers decode a region of the file by decoding from the top of the file down to it, so a
+ * tile is never decoded on its own: the rows of tiles from the one holding it down to as many as
+ * fit in half the cache are decoded together at the full width of the image, and every tile in
+ * them is filled from that one decode. A pass from the top of the image down then decodes the
+ * file a few times rather than once for every tile. Decoded tiles are kept in a least recently
+ * used cache with a budget in bytes, which should hold at least two rows of tiles. When the cache
+ * is full the oldest tile is dropped, and if it was changed since it was brought in it is first
+ * written to a scratch file so that it can be read back later. Rows can be read and written
+ * across tile borders, so operations that look at the neighbours of a pixel see the same values
+ * they would in an untiled buffer. All access is synchronized, so one buffer can be shared
+ * between threads.
+ */
+public class TiledPixelBuffer implements PixelBuffer, Closeable {
+  /**
+   * This field represents the width and height of a full tile in pixels.
+   */
+  private final int tileSize;
+  /**
+   * This field represents the number of tiles across this buffer.
+   */
+  private final int tilesAcross;
+  /**
+   * This field represents the width of this buffer.
+   */
+  private final int width;
+  /**
+   * This field represents the height of this buffer.
+   */
+  private final int height;
+  /**
+   * This field represents the most bytes of tiles kept in memory at once.
+   */
+  private final long cacheBytes;
+  /**
+   * This field represents the decoded tiles in memory, the least recently used first.
+   */
+  private final LinkedHashMap<Integer, int[]> cache;
+  /**
+   * This field represents the tiles that were changed since they were brought into the cache.
+   */
+  private final BitSet dirty;
+  /**
+   * This field represents the tiles whose current pixels are held in the scratch file.
+   */
+  private final BitSet spilled;
+  /**
+   * This field represents the reader that decodes tiles, or null if this buffer starts black.
+   */
+  private ImageReader reader;
+  /**
+   * This field represents the scratch file evicted tiles are written to, once one is needed.
+   */
+  private FileChannel scratch;
+  /**
+   * This field represents the path of the scratch file.
+   */
+  private Path scratchFile;
+  /**
+   * This field represents the number of bytes of tiles currently in memory.
+   */
+  private long bytesInCache;
+
+  /**
+   * This constructs a black tiled buffer of the given size.
+   *
+   * @param width      the width of the buffer.
+   * @param height     the height of the buffer.
+   * @param tileSize   the width and height of a full tile.
+   * @param cacheBytes the most bytes of tiles kept in memory at once.
+   * @throws NegativeArraySizeException if either dimension is negative.
+   */
+  public TiledPixelBuffer(int width, int height, int tileSize, long cacheBytes) {
+    if (width < 0 || height < 0) {
+      throw new NegativeArraySizeException("Dimensions cannot be negative.");
+    }
+    if (tileSize <= 0) {
+      throw new IllegalArgumentException("Tile size must be positive.");
+    }
+    this.width = width;
+    this.height = height;
+    this.tileSize = tileSize;
+    this.tilesAcross = (width + tileSize - 1) / tileSize;
+    this.cacheBytes = cacheBytes;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    this.dirty = new BitSet();
+    this.spilled = new BitSet();
+  }
+
+  /**
+   * This constructs a tiled buffer over an image file. Only the header of the file is read here;
+   * each tile is decoded when it is first used.
+   *
+   * @param file       the image file to read.
+   * @param tileSize   the width and height of a full tile.
+   * @param cacheBytes the most bytes of tiles kept in memory at once.
+   * @return the tiled buffer over that file.
+   * @throws IOException if the file cannot be opened or no reader supports its format.
+   */
+  public static TiledPixelBuffer open(File file, int tileSize, long cacheBytes)
+          throws IOException {
+    ImageInputStream stream = ImageIO.createImageInputStream(file);
+    if (stream == null) {
+      throw new IOException("Cannot open " + file);
+    }
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+    if (!readers.hasNext()) {
+      stream.close();
+      throw new IOException("No reader for " + file);
+    }
+    ImageReader reader = readers.next();
+    reader.setInput(stream, false, true);
+    TiledPixelBuffer buffer = new TiledPixelBuffer(reader.getWidth(0), reader.getHeight(0),
+            tileSize, cacheBytes);
+    buffer.reader = reader;
+    return buffer;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public synchronized int getChannel(int row, int col, int channel) {
+    return (getRGB(row, col) >> (16 - 8 * channel)) & 0xFF;
+  }
+
+  @Override
+  public synchronized void setChannel(int row, int col, int channel, int value) {
+    int shift = 16 - 8 * channel;
+    int[] tile = tileFor(row, col, true);
+    int index = indexInTile(row, col);
+    tile[index] = (tile[index] & ~(0xFF << shift)) | (PixelBuffer.clamp(value) << shift);
+  }
+
+  @Override
+  public synchronized void setRGB(int row, int col, int r, int g, int b) {
+    tileFor(row, col, true)[indexInTile(row, col)] = (PixelBuffer.clamp(r) << 16)
+            | (PixelBuffer.clamp(g) << 8) | PixelBuffer.clamp(b);
+  }
+
+  @Override
+  public synchronized int getRGB(int row, int col) {
+    return tileFor(row, col, false)[indexInTile(row, col)];
+  }
+
+  @Override
+  public synchronized void getRow(int row, int[] rgb) {
+    for (int x = 0; x < tilesAcross; x++) {
+      int[] tile = tile((row / tileSize) * tilesAcross + x, false);
+      int tileWidth = tileWidth(x);
+      System.arraycopy(tile, (row % tileSize) * tileWidth, rgb, x * tileSize, tileWidth);
+    }
+  }
+
+  @Override
+  public synchronized void setRow(int row, int[] rgb) {
+    for (int x = 0; x < tilesAcross; x++) {
+      int[] tile = tile((row / tileSize) * tilesAcross + x, true);
+      int tileWidth = tileWidth(x);
+      int offset = (row % tileSize) * tileWidth;
+      for (int k = 0; k < tileWidth; k++) {
+        tile[offset + k] = rgb[x * tileSize + k] & 0xFFFFFF;
+      }
+    }
+  }
+
+  @Override
+  public PixelBuffer create(int width, int height) {
+    return new TiledPixelBuffer(width, height, tileSize, cacheBytes);
+  }
+
+  @Override
+  public PixelBuffer copy() {
+    TiledPixelBuffer copy = new TiledPixelBuffer(width, height, tileSize, cacheBytes);
+    int[] row = new int[width];
+    for (int j = 0; j < height; j++) {
+      getRow(j, row);
+      copy.setRow(j, row);
+    }
+    return copy;
+  }
+
+  /**
+   * This method releases the reader of this buffer and deletes its scratch file.
+   *
+   * @throws IOException if the reader or the scratch file cannot be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    cache.clear();
+    bytesInCache = 0;
+    if (reader != null) {
+      Object input = reader.getInput();
+      reader.dispose();
+      reader = null;
+      if (input instanceof Closeable) {
+        ((Closeable) input).close();
+      }
+    }
+    if (scratch != null) {
+      scratch.close();
+      scratch = null;
+      Files.deleteIfExists(scratchFile);
+    }
+  }
+
+  /**
+   * This is a helper method that gets the tile holding a pixel.
+   *
+   * @param row   the row of the pixel.
+   * @param col   the column of the pixel.
+   * @param write whether the tile is about to be changed.
+   * @return the pixels of that tile.
+   */
+  private int[] tileFor(int row, int col, boolean write) {
+    return tile((row / tileSize) * tilesAcross + col / tileSize, write);
+  }
+
+  /**
+   * This is a helper method that gets the position of a pixel inside its tile.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the index of the pixel inside its tile.
+   */
+  private int indexInTile(int row, int col) {
+    return (row % tileSize) * tileWidth(col / tileSize) + col % tileSize;
+  }
+
+  /**
+   * This is a helper method that gets the width of the tiles in a column of tiles. Only the last
+   * column can be narrower than a full tile.
+   *
+   * @param x the column of tiles.
+   * @return the width of those tiles.
+   */
+  private int tileWidth(int x) {
+    return Math.min(tileSize, width - x * tileSize);
+  }
+
+  /**
+   * This is a helper method that gets the height of the tiles in a row of tiles. Only the last
+   * row can be shorter than a full tile.
+   *
+   * @param y the row of tiles.
+   * @return the height of those tiles.
+   */
+  private int tileHeight(int y) {
+    return Math.min(tileSize, height - y * tileSize);
+  }
+
+  /**
+   * This is a helper method that gets a tile, bringing it into the cache if it is not there. A
+   * tile is read back from the scratch file if it was ever evicted after being changed, decoded
+   * from the source file if it was never changed, or created black if there is no source file.
+   *
+   * @param index the index of the tile, counting across and then down.
+   * @param write whether the tile is about to be changed.
+   * @return the pixels of that tile.
+   */
+  private int[] tile(int index, boolean write) {
+    int[] tile = cache.get(index);
+    if (tile == null) {
+      int x = index % tilesAcross;
+      int y = index / tilesAcross;
+      int tileWidth = tileWidth(x);
+      int tileHeight = tileHeight(y);
+      tile = new int[tileWidth * tileHeight];
+      try {
+        if (spilled.get(index)) {
+          readScratch(index, tile);
+        } else if (reader != null) {
+          decodeBand(y, x, tile);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      cache.put(index, tile);
+      bytesInCache += 4L * tile.length;
+      evict(index);
+    }
+    if (write) {
+      dirty.set(index);
+    }
+    return tile;
+  }
+
+  /**
+   * This is a helper method that decodes whole rows of tiles from the source file in one go, at
+   * the full width of the image, starting with the row holding the asked for tile and going down
+   * as far as half the cache budget allows, but at least that one row. It fills the asked for
+   * tile and every other tile of those rows that is neither in the cache nor in the scratch file.
+   * The image readers for JPEG and PNG decode from the top of the file to reach any region, so
+   * decoding one tile at a time would decode most of the file again for every tile. The other
+   * tiles are put in the cache before the asked for one, so they are the first to go if the cache
+   * cannot hold them all.
+   *
+   * @param y    the row of tiles holding the asked for tile.
+   * @param x    the column of the asked for tile.
+   * @param tile the array to decode the asked for tile into.
+   * @throws IOException if the file cannot be decoded.
+   */
+  private void decodeBand(int y, int x, int[] tile) throws IOException {
+    int tilesDown = (height + tileSize - 1) / tileSize;
+    long bandBytes = 4L * width * tileSize;
+    int bands = (int) Math.max(1, Math.min(tilesDown - y, cacheBytes / 2 / bandBytes));
+    int top = y * tileSize;
+    int rows = (int) Math.min(height, (long) (y + bands) * tileSize) - top;
+    ImageReadParam param = reader.getDefaultReadParam();
+    param.setSourceRegion(new Rectangle(0, top, width, rows));
+    BufferedImage region = reader.read(0, param);
+    int[] row = new int[width];
+    for (int down = y; down < y + bands; down++) {
+      int tileHeight = tileHeight(down);
+      int[][] tiles = new int[tilesAcross][];
+      for (int across = 0; across < tilesAcross; across++) {
+        int index = down * tilesAcross + across;
+        if (down == y && across == x) {
+          tiles[across] = tile;
+        } else if (!cache.containsKey(index) && !spilled.get(index)) {
+          tiles[across] = new int[tileWidth(across) * tileHeight];
+        }
+      }
+      for (int j = 0; j < tileHeight; j++) {
+        RasterConverter.getRow(region, down * tileSize - top + j, row);
+        for (int across = 0; across < tilesAcross; across++) {
+          if (tiles[across] != null) {
+            int tileWidth = tileWidth(across);
+            System.arraycopy(row, across * tileSize, tiles[across], j * tileWidth, tileWidth);
+          }
+        }
+      }
+      for (int across = 0; across < tilesAcross; across++) {
+        if (tiles[across] != null && tiles[across] != tile) {
+          cache.put(down * tilesAcross + across, tiles[across]);
+          bytesInCache += 4L * tiles[across].length;
+        }
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that drops the least recently used tiles until the cache is within
+   * its budget. Changed tiles are written to the scratch file before they are dropped. The tile
+   * that was just brought in is never dropped.
+   *
+   * @param keep the index of the tile that must stay in the cache.
+   * @throws UncheckedIOException if a tile cannot be written to the scratch file.
+   */
+  private void evict(int keep) {
+    Iterator<Map.Entry<Integer, int[]>> entries = cache.entrySet().iterator();
+    while (bytesInCache > cacheBytes && entries.hasNext()) {
+      Map.Entry<Integer, int[]> eldest = entries.next();
+      int index = eldest.getKey();
+      if (index == keep) {
+        continue;
+      }
+      if (dirty.get(index)) {
+        try {
+          writeScratch(index, eldest.getValue());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        spilled.set(index);
+        dirty.clear(index);
+      }
+      bytesInCache -= 4L * eldest.getValue().length;
+      entries.remove();
+    }
+  }
+
+  /**
+   * This is a helper method that writes a tile to its slot in the scratch file, creating the
+   * file the first time it is needed.
+   *
+   * @param index the index of the tile.
+   * @param tile  the pixels of the tile.
+   * @throws IOException if the tile cannot be written.
+   */
+  private void writeScratch(int index, int[] tile) throws IOException {
+    if (scratch == null) {
+      scratchFile = Files.createTempFile("image", ".tiles");
+      scratchFile.toFile().deleteOnExit();
+      scratch = FileChannel.open(scratchFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(4 * tile.length);
+    bytes.asIntBuffer().put(tile);
+    long position = 4L * index * tileSize * tileSize;
+    while (bytes.hasRemaining()) {
+      position += scratch.write(bytes, position);
+    }
+  }
+
+  /**
+   * This is a helper method that reads a tile back from its slot in the scratch file.
+   *
+   * @param index the index of the tile.
+   * @param tile  the array to read the pixels of the tile into.
+   * @throws IOException if the tile cannot be read.
+   */
+  private void readScratch(int index, int[] tile) throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(4 * tile.length);
+    long position = 4L * index * tileSize * tileSize;
+    while (bytes.hasRemaining()) {
+      int read = scratch.read(bytes, position);
+      if (read < 0) {
+        throw new IOException("The scratch file is shorter than expected.");
+      }
+      position += read;
+    }
+    bytes.flip();
+    bytes.asIntBuffer().get(tile);
+  }
+}
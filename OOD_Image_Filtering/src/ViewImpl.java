@@ -53,6 +53,7 @@ public class ViewImpl extends JFrame implements ViewInterface {
   private String fileName;
   private int batchDimensionOne;
   private int batchDimensionTwo;
+  private double batchSigma;
   private int count;
 
   /**
@@ -73,8 +74,9 @@ public class ViewImpl extends JFrame implements ViewInterface {
 
 
     //Combo box initialization.
-    String[] features = {"Blur", "Sharpen", "Sepia", "Grayscale", "Dither", "Mosaic",
-                         "Checkerboard", "Horizontal Rainbow", "Vertical Rainbow", "Flag France",
+    String[] features = {"Blur", "Gaussian Blur", "Box Blur", "Sharpen", "Sepia", "Grayscale",
+                         "Dither", "Ordered Dither", "Mosaic", "Checkerboard",
+                         "Horizontal Rainbow", "Vertical Rainbow", "Flag France",
                          "Flag Switzerland", "Flag Greece"};
 
     featureList = new JComboBox(features);
@@ -229,6 +231,9 @@ public class ViewImpl extends JFrame implements ViewInterface {
     featureList.addActionListener(e -> {
       featureList = (JComboBox) e.getSource();
       if (featureList.getSelectedItem().toString().equals("Mosaic")
+              || featureList.getSelectedItem().toString().equals("Gaussian Blur")
+              || featureList.getSelectedItem().toString().equals("Box Blur")
+              || featureList.getSelectedItem().toString().equals("Ordered Dither")
               || featureList.getSelectedItem().toString().equals("Checkerboard")
               || featureList.getSelectedItem().toString().equals("Flag Switzerland")) {
         dimensionOne.setEditable(true);
@@ -267,6 +272,14 @@ public class ViewImpl extends JFrame implements ViewInterface {
               case "Blur":
                 features.applyFilters("Blur", "batch");
                 break;
+              case "GaussianBlur":
+                batchSigma = input.nextDouble();
+                features.applyFilters("Gaussian Blur", "batch");
+                break;
+              case "BoxBlur":
+                batchDimensionOne = input.nextInt();
+                features.applyFilters("Box Blur", "batch");
+                break;
               case "Sharpen":
                 features.applyFilters("Sharpen", "batch");
                 break;
@@ -279,6 +292,10 @@ public class ViewImpl extends JFrame implements ViewInterface {
               case "Dither":
                 features.applyFilters("Dither", "batch");
                 break;
+              case "OrderedDither":
+                batchDimensionOne = input.nextInt();
+                features.applyFilters("Ordered Dither", "batch");
+                break;
               case "Mosaic":
                 batchDimensionOne = input.nextInt();
                 System.out.println(batchDimensionOne);
@@ -360,6 +377,16 @@ public class ViewImpl extends JFrame implements ViewInterface {
     }
   }
 
+  @Override
+  public double getSigma() {
+    try {
+      double sigma = Double.parseDouble(dimensionOne.getText().trim());
+      return Double.isFinite(sigma) ? sigma : 0;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
   @Override
   public String getFileInputString() {
     return filePath.getText();
@@ -396,6 +423,11 @@ public class ViewImpl extends JFrame implements ViewInterface {
     return batchDimensionTwo;
   }
 
+  @Override
+  public double getBatchSigma() {
+    return batchSigma;
+  }
+
   @Override
   public void fileNotFound() {
     JOptionPane fileNotFoundError = new JOptionPane();
@@ -29,6 +29,14 @@ public interface ViewInterface {
    */
   int getDimensionTwo();
 
+  /**
+   * This method gets the strength of the Gaussian blur typed into the first dimension field. Unlike
+   * the other dimensions it may have a decimal part, such as 1.5.
+   *
+   * @return the sigma of the blur, or 0 if the field does not hold a finite number.
+   */
+  double getSigma();
+
   /**
    * Display this view.
    */
@@ -73,6 +81,14 @@ public interface ViewInterface {
    */
   int getBatchDimensionTwo();
 
+  /**
+   * This method gets the strength of the Gaussian blur in the batch script if the user decides to
+   * use the batch script instead of the GUI. It may have a decimal part, such as 1.5.
+   *
+   * @return the sigma of the blur.
+   */
+  double getBatchSigma();
+
   /**
    * This method outputs a JOptionPane error message if the user attempts to load or save a file
    * that's not there.
@@ -0,0 +1,467 @@
+import java.util.Arrays;
+
+/**
+ * This class represents the split of an image into the regions closest to each of a set of seed
+ * pixels, which is what the mosaic is made from. Every pixel is labelled with the index of the
+ * nearest seed by straight line distance, and a pixel that is as near to two seeds goes to the one
+ * with the lower index, the same as searching the seeds in order.
+ *
+ * <p>The nearest seed is found with a uniform grid. Seeds are sorted into square cells sized so
+ * that each cell holds about one seed, and each pixel searches the rings of cells around its own
+ * cell outwards, stopping once the next ring is too far away to hold a nearer seed. That makes the
+ * search cost about the same for every pixel however many seeds there are. Bands of rows are
+ * labelled at the same time.
+ *
+ * <p>The labels can also be found with the jump flooding algorithm, which does not search for
+ * seeds at all. Each seed first labels its own pixel. Then, for steps of half the larger side of
+ * the image, a quarter, and so on down to one pixel, every pixel looks at the labels of the eight
+ * pixels a step away and keeps the nearest of those seeds and its own. Every pass reads one label
+ * buffer and writes another, so bands of rows work on it at the same time, and the cost does not
+ * depend on the number of seeds. It is not exact: a pixel now and then keeps a seed that is not
+ * the nearest. Adding one more pass with a step of one pixel at the end, known as JFA+1, fixes
+ * most of those pixels, but that is not guaranteed either, so the grid search stays the default
+ * and is the one to use when the result must match searching every seed.
+ *
+ * <p>Labels are kept in an int per pixel only for images of up to image.mapThreshold pixels, 64
+ * million by default, the size above which loaded images are kept out of the heap. For larger
+ * images the grid is kept instead and the labels of each band of rows are found again as the
+ * band is summed and painted, so the partition takes no memory per pixel. Jump flooding needs a
+ * label for every pixel, so it cannot partition images that large.
+ */
+public class VoronoiPartition {
+  /**
+   * This enum represents the ways of finding the nearest seed of every pixel.
+   */
+  public enum Method {
+    /**
+     * Search a grid of cells around each pixel. The result is exact.
+     */
+    GRID,
+    /**
+     * Flood the labels with the jump flooding algorithm. A few pixels may get a seed that is not
+     * the nearest.
+     */
+    JUMP_FLOOD,
+    /**
+     * Flood the labels with the jump flooding algorithm and one more pass with a step of one
+     * pixel. Fewer pixels get a seed that is not the nearest, but some still may.
+     */
+    JUMP_FLOOD_PLUS_ONE;
+
+    /**
+     * This method gets the method used by the mosaic. It reads the image.voronoi system property
+     * and falls back to the grid if the property is missing or not recognized.
+     *
+     * @return the method used by the mosaic.
+     */
+    public static Method getDefault() {
+      String name = System.getProperty("image.voronoi", GRID.name());
+      try {
+        return Method.valueOf(name.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        return GRID;
+      }
+    }
+  }
+
+  /**
+   * This field represents the width of the partitioned image.
+   */
+  private final int width;
+  /**
+   * This field represents the height of the partitioned image.
+   */
+  private final int height;
+  /**
+   * This field represents the number of seeds.
+   */
+  private final int seeds;
+  /**
+   * This field represents the row of each seed.
+   */
+  private final int[] seedRows;
+  /**
+   * This field represents the column of each seed.
+   */
+  private final int[] seedColumns;
+  /**
+   * This field represents the width and height in pixels of a cell of the grid.
+   */
+  private final int cell;
+  /**
+   * This field represents the number of cells across the grid.
+   */
+  private final int across;
+  /**
+   * This field represents the number of cells down the grid.
+   */
+  private final int down;
+  /**
+   * This field represents where the seeds of each cell start in the sorted seeds, with one more
+   * entry for the end of the last cell.
+   */
+  private final int[] start;
+  /**
+   * This field represents the indices of the seeds sorted by cell, in index order within a cell.
+   */
+  private final int[] sorted;
+  /**
+   * This field represents the index of the nearest seed of every pixel, or null if the image is
+   * too large to keep a label for every pixel. The label of column k of row j is at index
+   * j * width + k.
+   */
+  private final int[] labels;
+
+  /**
+   * This constructs the exact partition of an image of the given size by the given seeds, found
+   * with the grid.
+   *
+   * @param width       the width of the image.
+   * @param height      the height of the image.
+   * @param seedRows    the row of each seed.
+   * @param seedColumns the column of each seed.
+   * @throws IllegalArgumentException if there are no seeds, the lists of rows and columns are not
+   *                                  the same length, or a seed lies outside of the image.
+   */
+  public VoronoiPartition(int width, int height, int[] seedRows, int[] seedColumns) {
+    this(width, height, seedRows, seedColumns, Method.GRID);
+  }
+
+  /**
+   * This constructs the partition of an image of the given size by the given seeds, found with
+   * the given method.
+   *
+   * @param width       the width of the image.
+   * @param height      the height of the image.
+   * @param seedRows    the row of each seed.
+   * @param seedColumns the column of each seed.
+   * @param method      the way of finding the nearest seed of every pixel.
+   * @throws IllegalArgumentException if there are no seeds, the lists of rows and columns are not
+   *                                  the same length, or a seed lies outside of the image.
+   */
+  public VoronoiPartition(int width, int height, int[] seedRows, int[] seedColumns,
+                          Method method) {
+    if (seedRows.length == 0 || seedRows.length != seedColumns.length) {
+      throw new IllegalArgumentException("There must be at least one seed and every seed needs a "
+              + "row and a column.");
+    }
+    for (int i = 0; i < seedRows.length; i++) {
+      if (seedRows[i] < 0 || seedRows[i] >= height || seedColumns[i] < 0
+              || seedColumns[i] >= width) {
+        throw new IllegalArgumentException("Every seed must lie inside of the image.");
+      }
+    }
+    this.width = width;
+    this.height = height;
+    this.seeds = seedRows.length;
+    this.seedRows = seedRows.clone();
+    this.seedColumns = seedColumns.clone();
+    this.cell = Math.max(1, (int) Math.sqrt((double) width * height / seeds));
+    this.across = (width + cell - 1) / cell;
+    this.down = (height + cell - 1) / cell;
+    this.start = new int[across * down + 1];
+    this.sorted = new int[seeds];
+    buildGrid();
+    boolean store = (long) width * height <= labelLimit();
+    if (!store && method != Method.GRID) {
+      throw new IllegalArgumentException("Jump flooding keeps a label for every pixel, so it "
+              + "cannot partition an image of more than " + labelLimit() + " pixels. Use the grid "
+              + "instead.");
+    }
+    if (!store) {
+      this.labels = null;
+    } else if (method == Method.GRID) {
+      this.labels = new int[width * height];
+      RowBands.run(height, (from, to) -> {
+        int[] row = new int[width];
+        for (int j = from; j < to; j++) {
+          labelRow(j, row);
+          System.arraycopy(row, 0, labels, j * width, width);
+        }
+      });
+    } else {
+      this.labels = labelWithJumpFlood(method == Method.JUMP_FLOOD_PLUS_ONE);
+    }
+  }
+
+  /**
+   * This is a getter method that gets the number of seeds.
+   *
+   * @return the number of seeds.
+   */
+  public int getSeeds() {
+    return seeds;
+  }
+
+  /**
+   * This method gets the index of the seed nearest to a pixel.
+   *
+   * @param row    the row of the pixel.
+   * @param column the column of the pixel.
+   * @return the index of the nearest seed.
+   */
+  public int getLabel(int row, int column) {
+    if (labels != null) {
+      return labels[row * width + column];
+    }
+    return nearest(row, column);
+  }
+
+  /**
+   * This method gets the number of bytes this partition holds, which is an int per pixel if it
+   * keeps its labels and just its grid of seeds otherwise.
+   *
+   * @return the bytes held by this partition.
+   */
+  public long getBytes() {
+    long grid = 4L * (start.length + 3L * seeds);
+    return labels == null ? grid : grid + 4L * labels.length;
+  }
+
+  /**
+   * This method makes a mosaic of the source buffer. Each pixel is set to the mean colour of the
+   * pixels in its region, with each channel rounded down. The colours are summed in one pass over
+   * the image into a total per seed, and the means are painted in a second pass. The source
+   * buffer is not changed.
+   *
+   * @param source the pixels to average, the same size as the partition.
+   * @return the mosaic in a new buffer with the same layout.
+   * @throws IllegalArgumentException if the source is not the same size as the partition.
+   */
+  public PixelBuffer paintMeans(PixelBuffer source) {
+    if (source.getWidth() != width || source.getHeight() != height) {
+      throw new IllegalArgumentException("The image is not the size of the partition.");
+    }
+    long[] red = new long[seeds];
+    long[] green = new long[seeds];
+    long[] blue = new long[seeds];
+    long[] count = new long[seeds];
+    RowBands.run(height, (from, to) -> {
+      long[] bandRed = new long[seeds];
+      long[] bandGreen = new long[seeds];
+      long[] bandBlue = new long[seeds];
+      long[] bandCount = new long[seeds];
+      int[] row = new int[width];
+      int[] rowLabels = new int[width];
+      for (int j = from; j < to; j++) {
+        source.getRow(j, row);
+        getRowLabels(j, rowLabels);
+        for (int k = 0; k < width; k++) {
+          int label = rowLabels[k];
+          bandRed[label] += (row[k] >> 16) & 0xFF;
+          bandGreen[label] += (row[k] >> 8) & 0xFF;
+          bandBlue[label] += row[k] & 0xFF;
+          bandCount[label]++;
+        }
+      }
+      synchronized (count) {
+        for (int i = 0; i < seeds; i++) {
+          red[i] += bandRed[i];
+          green[i] += bandGreen[i];
+          blue[i] += bandBlue[i];
+          count[i] += bandCount[i];
+        }
+      }
+    });
+    int[] means = new int[seeds];
+    for (int i = 0; i < seeds; i++) {
+      if (count[i] > 0) {
+        means[i] = (int) (red[i] / count[i]) << 16 | (int) (green[i] / count[i]) << 8
+                | (int) (blue[i] / count[i]);
+      }
+    }
+    PixelBuffer result = source.create(width, height);
+    RowBands.run(height, (from, to) -> {
+      int[] painted = new int[width];
+      for (int j = from; j < to; j++) {
+        getRowLabels(j, painted);
+        for (int k = 0; k < width; k++) {
+          painted[k] = means[painted[k]];
+        }
+        result.setRow(j, painted);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * This is a helper method that gets the labels of one row, from the stored labels if there are
+   * any and from the grid otherwise.
+   *
+   * @param row       the row to label.
+   * @param rowLabels the array to store the labels of the row in.
+   */
+  private void getRowLabels(int row, int[] rowLabels) {
+    if (labels != null) {
+      System.arraycopy(labels, row * width, rowLabels, 0, width);
+    } else {
+      labelRow(row, rowLabels);
+    }
+  }
+
+  /**
+   * This is a helper method that gets the most pixels an image can have for its labels to be
+   * kept. It is the image.mapThreshold system property, 64 million by default, and never more
+   * than an int array can hold.
+   *
+   * @return the most pixels whose labels are kept.
+   */
+  private static long labelLimit() {
+    return Math.min(Long.getLong("image.mapThreshold", 64_000_000L), Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * This is a helper method that sorts the seeds into a uniform grid of cells. The seeds of each
+   * cell are stored together in index order, so the lower index is met first within a cell, and
+   * ties across cells are settled by comparing indices.
+   */
+  private void buildGrid() {
+    for (int i = 0; i < seeds; i++) {
+      start[(seedRows[i] / cell) * across + seedColumns[i] / cell + 1]++;
+    }
+    for (int c = 0; c < across * down; c++) {
+      start[c + 1] += start[c];
+    }
+    int[] next = new int[across * down];
+    System.arraycopy(start, 0, next, 0, next.length);
+    for (int i = 0; i < seeds; i++) {
+      sorted[next[(seedRows[i] / cell) * across + seedColumns[i] / cell]++] = i;
+    }
+  }
+
+  /**
+   * This is a helper method that labels every pixel of a row with its nearest seed using the
+   * grid.
+   *
+   * @param j         the row to label.
+   * @param rowLabels the array to store the labels of the row in.
+   */
+  private void labelRow(int j, int[] rowLabels) {
+    for (int k = 0; k < width; k++) {
+      rowLabels[k] = nearest(j, k);
+    }
+  }
+
+  /**
+   * This is a helper method that finds the seed nearest to a pixel by searching the rings of cells
+   * of the grid around the cell of the pixel, outwards, until the next ring is too far away to
+   * hold a nearer seed.
+   *
+   * @param j the row of the pixel.
+   * @param k the column of the pixel.
+   * @return the index of the nearest seed.
+   */
+  private int nearest(int j, int k) {
+    int rings = Math.max(across, down);
+    int cellRow = j / cell;
+    int cellColumn = k / cell;
+    long best = Long.MAX_VALUE;
+    int bestSeed = -1;
+    for (int ring = 0; ring <= rings; ring++) {
+      //Every cell in this ring is at least (ring - 1) * cell + 1 pixels away on one axis.
+      long reach = ring == 0 ? 0 : (long) (ring - 1) * cell + 1;
+      if (reach * reach > best) {
+        break;
+      }
+      int top = Math.max(0, cellRow - ring);
+      int bottom = Math.min(down - 1, cellRow + ring);
+      for (int cy = top; cy <= bottom; cy++) {
+        boolean edge = cy == cellRow - ring || cy == cellRow + ring;
+        int step = edge ? 1 : 2 * ring;
+        for (int cx = cellColumn - ring; cx <= cellColumn + ring; cx += step) {
+          if (cx < 0 || cx >= across) {
+            continue;
+          }
+          int c = cy * across + cx;
+          for (int s = start[c]; s < start[c + 1]; s++) {
+            int seed = sorted[s];
+            long dy = j - seedRows[seed];
+            long dx = k - seedColumns[seed];
+            long distance = dy * dy + dx * dx;
+            if (distance < best || (distance == best && seed < bestSeed)) {
+              best = distance;
+              bestSeed = seed;
+            }
+          }
+        }
+      }
+    }
+    return bestSeed;
+  }
+
+  /**
+   * This is a helper method that labels every pixel with the jump flooding algorithm. Pixels that
+   * no seed has reached yet hold -1. Where two seeds share a pixel, or a pixel is as near to two
+   * seeds, the lower index is kept, so the result is the same at any parallelism.
+   *
+   * @param extraPass true to finish with one more pass with a step of one pixel.
+   * @return the label of every pixel.
+   */
+  private int[] labelWithJumpFlood(boolean extraPass) {
+    int[] current = new int[width * height];
+    int[] next = new int[width * height];
+    Arrays.fill(current, -1);
+    for (int i = seeds - 1; i >= 0; i--) {
+      current[seedRows[i] * width + seedColumns[i]] = i;
+    }
+    int step = Integer.highestOneBit(Math.max(1, Math.max(width, height) - 1));
+    boolean last = false;
+    while (!last) {
+      int[] from = current;
+      int[] to = next;
+      int jump = step;
+      RowBands.run(height, (top, bottom) -> floodBand(from, to, jump, top, bottom));
+      current = to;
+      next = from;
+      if (step > 1) {
+        step /= 2;
+      } else if (extraPass) {
+        extraPass = false;
+      } else {
+        last = true;
+      }
+    }
+    return current;
+  }
+
+  /**
+   * This is a helper method that runs one pass of the jump flooding algorithm over a band of rows.
+   * Each pixel keeps the nearest of its own seed and the seeds of the eight pixels a step away.
+   *
+   * @param from   the labels before the pass.
+   * @param to     the labels after the pass.
+   * @param step   the distance in pixels to the pixels looked at.
+   * @param top    the first row of the band.
+   * @param bottom the row after the last row of the band.
+   */
+  private void floodBand(int[] from, int[] to, int step, int top, int bottom) {
+    for (int j = top; j < bottom; j++) {
+      for (int k = 0; k < width; k++) {
+        long best = Long.MAX_VALUE;
+        int bestSeed = -1;
+        for (int y = j - step; y <= j + step; y += step) {
+          if (y < 0 || y >= height) {
+            continue;
+          }
+          for (int x = k - step; x <= k + step; x += step) {
+            if (x < 0 || x >= width) {
+              continue;
+            }
+            int seed = from[y * width + x];
+            if (seed < 0) {
+              continue;
+            }
+            long dy = j - seedRows[seed];
+            long dx = k - seedColumns[seed];
+            long distance = dy * dy + dx * dx;
+            if (distance < best || (distance == best && seed < bestSeed)) {
+              best = distance;
+              bestSeed = seed;
+            }
+          }
+        }
+        to[j * width + k] = bestSeed;
+      }
+    }
+  }
+}
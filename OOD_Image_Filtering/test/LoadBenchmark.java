@@ -0,0 +1,153 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * This class times how long it takes to load jpg files. Each file is loaded the way the image
+ * manager used to, decoding it once for the pixels and once each for the width and the height,
+ * and then the way it does now through an ImageLoader, which reads the size from the header,
+ * decodes the pixels once and copies them into a pixel buffer. The time to read only the size
+ * from the header and the time of one plain decode are shown as well, so the loader time less the
+ * one decode time is the cost of the copy. The files are given as arguments, either jpg files or
+ * directories holding them. With no arguments a few jpg files of different sizes are made in a
+ * scratch directory and timed instead.
+ */
+public class LoadBenchmark {
+  /**
+   * This field represents the number of timed loads of every file in every way.
+   */
+  private static final int RUNS = 5;
+
+  /**
+   * This method times loading the given files, or files it makes if none are given, and prints
+   * the median time of each way of loading every file in milliseconds.
+   *
+   * @param args the jpg files or directories of jpg files to load.
+   * @throws IOException if a file cannot be read or made.
+   */
+  public static void main(String[] args) throws IOException {
+    List<File> files = new ArrayList<>();
+    for (String arg : args) {
+      File file = new File(arg);
+      File[] inside = file.listFiles((dir, name) -> name.toLowerCase().endsWith(".jpg")
+              || name.toLowerCase().endsWith(".jpeg"));
+      if (inside != null) {
+        Arrays.sort(inside);
+        files.addAll(Arrays.asList(inside));
+      } else {
+        files.add(file);
+      }
+    }
+    if (files.isEmpty()) {
+      files = makeCorpus();
+    }
+    ImageManager manager = new ImageManager();
+    System.out.printf("%-28s %11s %10s %10s %10s %10s%n", "file", "size", "header ms", "1x ms",
+            "3x ms", "loader ms");
+    for (File file : files) {
+      //One untimed load of each kind so the decoder classes are loaded before timing.
+      decode(file, 3);
+      manager.loadImage(file.getPath());
+      double[] header = new double[RUNS];
+      double[] once = new double[RUNS];
+      double[] before = new double[RUNS];
+      double[] after = new double[RUNS];
+      int width = 0;
+      int height = 0;
+      for (int i = 0; i < RUNS; i++) {
+        long start = System.nanoTime();
+        try (ImageLoader loader = new ImageLoader(file)) {
+          width = loader.getWidth();
+          height = loader.getHeight();
+        }
+        header[i] = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        decode(file, 1);
+        once[i] = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        decode(file, 3);
+        before[i] = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        manager.loadImage(file.getPath());
+        after[i] = (System.nanoTime() - start) / 1e6;
+      }
+      System.out.printf("%-28s %11s %10.2f %10.1f %10.1f %10.1f%n", file.getName(),
+              width + "x" + height, median(header), median(once), median(before), median(after));
+    }
+  }
+
+  /**
+   * This is a helper method that decodes a file a number of times. Three times is the way the
+   * image manager used to load a file, decoding it once for the pixels and once each for the width
+   * and the height. The streams are closed here so that only the decoding is timed.
+   *
+   * @param file  the file to load.
+   * @param times the number of times to decode it.
+   * @return the width and height read, which stops the decodes from being left out.
+   * @throws IOException if the file cannot be read.
+   */
+  private static long decode(File file, int times) throws IOException {
+    long total = 0;
+    for (int i = 0; i < times; i++) {
+      try (InputStream input = new FileInputStream(file)) {
+        BufferedImage image = ImageIO.read(input);
+        total += image.getWidth() + image.getHeight();
+      }
+    }
+    return total;
+  }
+
+  /**
+   * This is a helper method that makes jpg files of a few sizes in a scratch directory. The
+   * pixels are smooth gradients with some noise, so they compress about as well as photos.
+   *
+   * @return the files made.
+   * @throws IOException if a file cannot be written.
+   */
+  private static List<File> makeCorpus() throws IOException {
+    File directory = new File(System.getProperty("java.io.tmpdir"), "load-benchmark");
+    directory.mkdirs();
+    int[][] sizes = {{640, 480}, {1920, 1080}, {4000, 3000}};
+    Random random = new Random(42);
+    List<File> files = new ArrayList<>();
+    for (int[] size : sizes) {
+      File file = new File(directory, size[0] + "x" + size[1] + ".jpg");
+      if (!file.exists()) {
+        PixelBuffer pixels = PixelLayout.getDefault().allocate(size[0], size[1]);
+        int[] row = new int[size[0]];
+        for (int j = 0; j < size[1]; j++) {
+          for (int k = 0; k < size[0]; k++) {
+            int r = PixelBuffer.clamp(255 * k / size[0] + random.nextInt(32) - 16);
+            int g = PixelBuffer.clamp(255 * j / size[1] + random.nextInt(32) - 16);
+            int b = PixelBuffer.clamp(128 + random.nextInt(64) - 32);
+            row[k] = (r << 16) | (g << 8) | b;
+          }
+          pixels.setRow(j, row);
+        }
+        ImageUtil.writeImage(pixels, file.getPath());
+      }
+      files.add(file);
+    }
+    return files;
+  }
+
+  /**
+   * This is a helper method that gets the median of some times.
+   *
+   * @param times the times.
+   * @return the median.
+   */
+  private static double median(double[] times) {
+    double[] sorted = times.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
@@ -28,6 +28,19 @@ public class MockManager implements ImageManagerInterface {
     this.log = log;
   }
 
+  /**
+   * This method mocks the load kernel method and log is appended if the controller calls this
+   * method. It gives back a 3 by 3 kernel that leaves the image unchanged.
+   *
+   * @param fileName the text file to be read.
+   * @return the mock kernel.
+   */
+  @Override
+  public double[][] loadKernel(String fileName) {
+    log.append("Kernel loaded" + " " + fileName + " done. ");
+    return new double[][]{{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
+  }
+
   /**
    * This method mocks the load image method and log is appended if the controller calls this
    * method.
@@ -41,6 +54,19 @@ public class MockManager implements ImageManagerInterface {
     return mockImage;
   }
 
+  /**
+   * This method mocks the stream image method and log is appended if the controller calls this
+   * method.
+   *
+   * @param fileName the image file to be streamed.
+   * @return the mock image that is streamed.
+   */
+  @Override
+  public ImageInterface streamImage(String fileName) {
+    log.append("Image streamed" + " " + fileName + " done. ");
+    return mockImage;
+  }
+
   /**
    * This method mocks the createImage method and log is appended if the controller calls this
    * method.
@@ -70,5 +96,10 @@ public class MockManager implements ImageManagerInterface {
     return null;
   }
 
+  @Override
+  public BufferedImage displayImage(PixelBuffer buffer) {
+    return null;
+  }
+
 
 }
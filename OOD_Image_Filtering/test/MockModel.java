@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 /**
  * The purpose of this class is to mock the implementation of the ImageInterface which represents
  * our model. It is designed similar to the image class and verifies that the controller calls the
@@ -43,6 +45,17 @@ public class MockModel implements ImageInterface {
     log.append("blur done. ");
   }
 
+  /**
+   * This method mocks the Gaussian blur method and log is appended if the controller calls this
+   * method.
+   *
+   * @param sigma the standard deviation of the blur.
+   */
+  @Override
+  public void blurImage(double sigma) {
+    log.append("blur " + sigma + " done. ");
+  }
+
   /**
    * This method mocks the sharpen image method and log is appended if the controller calls this
    * method.
@@ -73,6 +86,50 @@ public class MockModel implements ImageInterface {
 
   }
 
+  /**
+   * This method mocks the box blur method and log is appended with the radius if the controller
+   * calls this method.
+   *
+   * @param radius the number of pixels the box reaches on each side of its centre.
+   */
+  @Override
+  public void boxBlur(int radius) {
+    log.append("boxBlur " + radius + " done. ");
+  }
+
+  /**
+   * This method mocks the convolve method and log is appended with the kernel size if the
+   * controller calls this method.
+   *
+   * @param kernel the kernel, with an odd number of rows and an odd number of columns.
+   */
+  @Override
+  public void convolve(double[][] kernel) {
+    log.append("convolve " + kernel.length + "x" + kernel[0].length + " done. ");
+  }
+
+  /**
+   * This method mocks the colour matrix method and log is appended with the matrix if the
+   * controller calls this method.
+   *
+   * @param matrix the matrix with three rows, red first, of three or four values each.
+   */
+  @Override
+  public void colorMatrix(double[][] matrix) {
+    log.append("colorMatrix " + Arrays.deepToString(matrix) + " done. ");
+  }
+
+  /**
+   * This method mocks the pointwise method and log is appended if the controller calls this
+   * method.
+   *
+   * @param op the operation to apply.
+   */
+  @Override
+  public void applyPointwise(PointwiseOp op) {
+    log.append("applyPointwise done. ");
+  }
+
   /**
    * This method mocks the horizontal rainbow method and log is appended if the controller calls
    * this method.
@@ -156,6 +213,17 @@ public class MockModel implements ImageInterface {
     log.append("dither " + " done. ");
   }
 
+  /**
+   * This method mocks the ordered dither method and log is appended with the matrix size if the
+   * controller calls this method.
+   *
+   * @param matrixSize the side of the threshold matrix.
+   */
+  @Override
+  public void orderedDither(int matrixSize) {
+    log.append("orderedDither " + matrixSize + " done. ");
+  }
+
   /**
    * This method mocks the mosaic method and log is appended if the controller calls this method.
    *
@@ -166,6 +234,30 @@ public class MockModel implements ImageInterface {
     log.append("mosaic " + seeds + " done. ");
   }
 
+  /**
+   * This method mocks the seeded mosaic method and log is appended with the seeds and the random
+   * seed if the controller calls this method.
+   *
+   * @param seeds      the user specified seeds in the image.
+   * @param randomSeed the number the seeds are drawn from.
+   */
+  @Override
+  public void mosaic(int seeds, long randomSeed) {
+    log.append("mosaic " + seeds + " " + randomSeed + " done. ");
+  }
+
+  /**
+   * This method mocks the snapshot method and log is appended if the controller calls this
+   * method.
+   *
+   * @return a new mock sharing the log and the unique array of this mock.
+   */
+  @Override
+  public ImageInterface snapshot() {
+    log.append("snapshot done. ");
+    return new MockModel(log, uniqueCode, uniqueArray);
+  }
+
   /**
    * This method mocks the model's getter for the image.
    *
@@ -176,6 +268,18 @@ public class MockModel implements ImageInterface {
     return this.uniqueArray;
   }
 
+  /**
+   * This method mocks the model's getter for the pixel buffer.
+   *
+   * @return a pixel buffer holding the unique array given for this mock.
+   */
+  @Override
+  public PixelBuffer getPixelBuffer() {
+    int height = this.uniqueArray.length;
+    int width = height == 0 ? 0 : this.uniqueArray[0].length;
+    return PackedPixelBuffer.fromArray(this.uniqueArray, width, height);
+  }
+
   /**
    * This method mocks the model's getter for the image width.
    *
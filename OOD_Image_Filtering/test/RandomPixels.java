@@ -0,0 +1,33 @@
+import java.util.Random;
+
+/**
+ * This class holds the random pixel buffers shared by the tests. Every buffer is drawn from a
+ * generator started with a given number, so a test sees the same pixels each time it runs.
+ */
+public final class RandomPixels {
+
+  /**
+   * This constructor is private because this class only has static methods.
+   */
+  private RandomPixels() {
+  }
+
+  /**
+   * This method makes a buffer of random pixels with the default layout.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @param seed   the number the random pixels are drawn from.
+   * @return the buffer.
+   */
+  public static PixelBuffer randomBuffer(int width, int height, long seed) {
+    Random random = new Random(seed);
+    PixelBuffer buffer = PixelLayout.getDefault().allocate(width, height);
+    for (int j = 0; j < height; j++) {
+      for (int k = 0; k < width; k++) {
+        buffer.setRGB(j, k, random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return buffer;
+  }
+}
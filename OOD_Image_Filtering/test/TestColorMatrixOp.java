@@ -0,0 +1,94 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for colour matrices. The fixed point tables are checked against the
+ * weighted sum worked out exactly, which the class promises to match for weights with up to four
+ * decimal places.
+ */
+public class TestColorMatrixOp {
+
+  //This tests that the gray and sepia presets give the whole part of the exact weighted sum,
+  // clamped to 0 to 255, for every one of the sixteen million colours.
+  @Test
+  public void testPresetsMatchExactSums() {
+    assertMatchesEverywhere(ColorMatrixOp.GRAY, new double[][]{
+        {0.2126, 0.7152, 0.0722},
+        {0.2126, 0.7152, 0.0722},
+        {0.2126, 0.7152, 0.0722}});
+    assertMatchesEverywhere(ColorMatrixOp.SEPIA, new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.689, 0.168},
+        {0.272, 0.534, 0.131}});
+  }
+
+  //This tests a matrix with negative weights, weights above one and offsets, whose sums fall
+  // below 0 and above 255 and must be clamped.
+  @Test
+  public void testNegativeWeightsAndOffsets() {
+    double[][] matrix = {
+        {1.5, -0.25, 0.0001, -20.5},
+        {-1.0, 2.0, -0.3333, 12.25},
+        {0.0, 0.0, -1.0, 255}};
+    assertMatchesEverywhere(new ColorMatrixOp(matrix), matrix);
+  }
+
+  //This tests that working out one channel gives the same values as that channel of a whole row.
+  @Test
+  public void testApplyChannelMatchesApplyRow() {
+    Random random = new Random(6);
+    int[] rgb = new int[500];
+    for (int k = 0; k < rgb.length; k++) {
+      rgb[k] = random.nextInt(1 << 24);
+    }
+    int[] row = rgb.clone();
+    ColorMatrixOp.SEPIA.applyRow(row, row.length);
+    int[] values = new int[rgb.length];
+    for (int channel = 0; channel < 3; channel++) {
+      ColorMatrixOp.SEPIA.applyChannel(rgb, rgb.length, channel, values);
+      for (int k = 0; k < rgb.length; k++) {
+        assertEquals((row[k] >> (16 - 8 * channel)) & 0xFF, values[k]);
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that runs a colour matrix on every colour and checks each channel
+   * against the weighted sum worked out in whole units of one ten thousandth, so no rounding is
+   * involved, rounded down and clamped.
+   *
+   * @param op     the colour matrix to check.
+   * @param matrix the weights and offsets of the matrix, with at most four decimal places.
+   */
+  private static void assertMatchesEverywhere(ColorMatrixOp op, double[][] matrix) {
+    long[][] weights = new long[3][4];
+    for (int i = 0; i < 3; i++) {
+      for (int c = 0; c < matrix[i].length; c++) {
+        weights[i][c] = Math.round(matrix[i][c] * 10000);
+      }
+    }
+    int[] row = new int[1 << 12];
+    for (int start = 0; start < 1 << 24; start += row.length) {
+      for (int k = 0; k < row.length; k++) {
+        row[k] = start + k;
+      }
+      op.applyRow(row, row.length);
+      for (int k = 0; k < row.length; k++) {
+        int color = start + k;
+        int[] old = {(color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF};
+        for (int i = 0; i < 3; i++) {
+          long sum = weights[i][0] * old[0] + weights[i][1] * old[1] + weights[i][2] * old[2]
+                  + weights[i][3];
+          long expected = Math.max(0, Math.min(255, Math.floorDiv(sum, 10000)));
+          long actual = (row[k] >> (16 - 8 * i)) & 0xFF;
+          if (actual != expected) {
+            assertEquals(Integer.toHexString(color) + " channel " + i, expected, actual);
+          }
+        }
+      }
+    }
+  }
+}
@@ -221,5 +221,182 @@ public class TestControllerForScript {
     assertEquals(123, mockManager.createImage().getMyImageWidth());
     assertEquals(124, mockManager.createImage().getMyImageHeight());
   }
-}
 
+  //This tests the blur command followed by a sigma, which applies a Gaussian blur instead of the
+  // fixed blur kernel.
+  @Test
+  public void testEleven() throws IOException {
+    Readable in = new FileReader("testEleven.txt");
+    ControllerForScript testEleven = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testEleven.goControllerForScript(mockManager);
+
+    assertEquals("blur 2.5 done. ", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. Image saved carrieGaussian.jpg done. ",
+            logForImageManager.toString());
+  }
+
+  //This tests the colormatrix command with twelve values, which is read as a matrix with an offset
+  // at the end of each row.
+  @Test
+  public void testTwelve() throws IOException {
+    Readable in = new FileReader("testTwelve.txt");
+    ControllerForScript testTwelve = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testTwelve.goControllerForScript(mockManager);
+
+    assertEquals("colorMatrix [[1.0, 0.0, 0.0, 10.0], [0.0, 1.0, 0.0, 0.0], "
+            + "[0.0, 0.0, 0.5, -5.0]] done. ", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. Image saved carrieMatrix.jpg done. ",
+            logForImageManager.toString());
+  }
+
+  //This tests that consecutive pointwise commands are fused into one call on the model, that blur
+  // breaks the run, and that a single pointwise command still uses its own method.
+  @Test
+  public void testThirteen() throws IOException {
+    Readable in = new FileReader("testThirteen.txt");
+    ControllerForScript testThirteen = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testThirteen.goControllerForScript(mockManager);
+
+    assertEquals("applyPointwise done. blur done. sepiaTone done. ", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. Image saved carrieFused.jpg done. ",
+            logForImageManager.toString());
+  }
+
+  //This tests the convolve command, which loads a kernel through the manager and passes it to the
+  // model.
+  @Test
+  public void testFourteen() throws IOException {
+    Readable in = new FileReader("testFourteen.txt");
+    ControllerForScript testFourteen = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testFourteen.goControllerForScript(mockManager);
+
+    assertEquals("convolve 3x3 done. ", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. Kernel loaded lens.txt done. "
+            + "Image saved carrieLens.jpg done. ", logForImageManager.toString());
+  }
+
+  //This tests the boxblur command followed by a radius.
+  @Test
+  public void testFifteen() throws IOException {
+    Readable in = new FileReader("testFifteen.txt");
+    ControllerForScript testFifteen = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testFifteen.goControllerForScript(mockManager);
+
+    assertEquals("boxBlur 4 done. ", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. Image saved carrieBox.jpg done. ",
+            logForImageManager.toString());
+  }
+
+  //This tests the ordered variant of the dither command followed by a matrix size.
+  @Test
+  public void testSixteen() throws IOException {
+    Readable in = new FileReader("testSixteen.txt");
+    ControllerForScript testSixteen = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testSixteen.goControllerForScript(mockManager);
+
+    assertEquals("orderedDither 4 done. ", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. Image saved carrieOrdered.jpg done. ",
+            logForImageManager.toString());
+  }
+
+  //This tests the mosaic command followed by the number of seeds and the number they are drawn
+  // from.
+  @Test
+  public void testSeventeen() throws IOException {
+    Readable in = new FileReader("testSeventeen.txt");
+    ControllerForScript testSeventeen = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testSeventeen.goControllerForScript(mockManager);
+
+    assertEquals("mosaic 1000 42 done. ", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. Image saved carrieMosaic.jpg done. ",
+            logForImageManager.toString());
+  }
+
+  //This tests the stream command, which opens the file through the manager to be streamed, and
+  // the filters that follow it.
+  @Test
+  public void testEighteen() throws IOException {
+    Readable in = new FileReader("testEighteen.txt");
+    ControllerForScript testEighteen = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testEighteen.goControllerForScript(mockManager);
+
+    assertEquals("gray done. blur done. ", logForModel.toString());
+    assertEquals("Image streamed carrie.jpg done. Image saved carrieStreamed.png done. ",
+            logForImageManager.toString());
+  }
+
+  //This tests that the number the mosaic seeds are drawn from is read as a long, so numbers too
+  // large for an int and negative numbers reach the model unchanged.
+  @Test
+  public void testNineteen() throws IOException {
+    Readable in = new FileReader("testNineteen.txt");
+    ControllerForScript testNineteen = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testNineteen.goControllerForScript(mockManager);
+
+    assertEquals("mosaic 1000 -9876543210123 done. ", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. Image saved carrieMosaicLong.jpg done. ",
+            logForImageManager.toString());
+  }
+
+  //This tests that a blur whose sigma is too large for its kernel to be built is rejected as
+  // incorrect input, and the script stops before the image is changed or saved.
+  @Test
+  public void testTwenty() throws IOException {
+    Readable in = new FileReader("testTwenty.txt");
+    ControllerForScript testTwenty = new ControllerForScript(in);
+    StringBuilder logForModel = new StringBuilder();
+    StringBuilder logForImageManager = new StringBuilder();
+    int[][][] uniqueArray = new int[2][3][3];
+    ImageInterface mockImage = new MockModel(logForModel, 123, uniqueArray);
+    ImageManagerInterface mockManager = new MockManager((mockImage), logForImageManager);
+    testTwenty.goControllerForScript(mockManager);
+
+    assertEquals("", logForModel.toString());
+    assertEquals("Image loaded carrie.jpg done. ", logForImageManager.toString());
+  }
+}
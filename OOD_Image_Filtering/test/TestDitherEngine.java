@@ -0,0 +1,48 @@
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for Floyd-Steinberg dithering. The wavefront that dithers rows on
+ * several threads is checked against the sequential algorithm, which dithers every row on the
+ * calling thread.
+ */
+public class TestDitherEngine {
+
+  //This tests that dithering on several threads gives exactly the same pixels as dithering on
+  // one, on images one pixel wide, one pixel high, narrower than the rows publish their progress
+  // after, and of odd sizes, with more threads than rows as well as fewer.
+  @Test
+  public void testWavefrontMatchesSequential() {
+    int[][] sizes = {{1, 40}, {40, 1}, {2, 2}, {5, 33}, {15, 9}, {17, 64}, {31, 7}, {97, 53}};
+    for (int[] size : sizes) {
+      PixelBuffer source = RandomPixels.randomBuffer(size[0], size[1], size[0] * 31 + size[1]);
+      PixelBuffer sequential = new DitherEngine(1).apply(source);
+      for (int threads : new int[]{2, 3, 8}) {
+        PixelBuffer wavefront = new DitherEngine(threads).apply(source);
+        for (int j = 0; j < size[1]; j++) {
+          for (int k = 0; k < size[0]; k++) {
+            assertEquals(size[0] + "x" + size[1] + " on " + threads + " at " + j + "," + k,
+                    sequential.getRGB(j, k), wavefront.getRGB(j, k));
+          }
+        }
+      }
+    }
+  }
+
+  //This tests that the wavefront gives the same pixels each time it is run, since a row that did
+  // not wait for the row above would only differ now and then.
+  @Test
+  public void testWavefrontIsRepeatable() {
+    PixelBuffer source = RandomPixels.randomBuffer(203, 151, 4);
+    PixelBuffer sequential = new DitherEngine(1).apply(source);
+    for (int run = 0; run < 20; run++) {
+      PixelBuffer wavefront = new DitherEngine(4).apply(source);
+      for (int j = 0; j < source.getHeight(); j++) {
+        for (int k = 0; k < source.getWidth(); k++) {
+          assertEquals(sequential.getRGB(j, k), wavefront.getRGB(j, k));
+        }
+      }
+    }
+  }
+}
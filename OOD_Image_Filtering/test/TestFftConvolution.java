@@ -0,0 +1,60 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for the Fourier transform convolution. Its output is checked against
+ * the direct convolution engine, which works out every sum one kernel value at a time.
+ */
+public class TestFftConvolution {
+
+  //This tests that the Fourier transform gives exactly the same pixels as the convolution engine
+  // for small, medium and large kernels in every border mode, on an image that spans several
+  // tiles and is not a multiple of the tile size.
+  @Test
+  public void testMatchesConvolutionEngine() {
+    PixelBuffer source = RandomPixels.randomBuffer(150, 91, 3);
+    Random random = new Random(5);
+    for (int size : new int[]{9, 15, 31}) {
+      double[][] kernel = new double[size][size];
+      for (int c = 0; c < size; c++) {
+        for (int d = 0; d < size; d++) {
+          kernel[c][d] = (random.nextDouble() * 1.5 - 0.25) / (size * size);
+        }
+      }
+      for (ConvolutionEngine.BorderMode border : ConvolutionEngine.BorderMode.values()) {
+        PixelBuffer direct = new ConvolutionEngine(kernel, border).apply(source);
+        PixelBuffer transformed = new FftConvolution(kernel, border).apply(source);
+        for (int j = 0; j < source.getHeight(); j++) {
+          for (int k = 0; k < source.getWidth(); k++) {
+            assertEquals(size + " " + border + " at " + j + "," + k, direct.getRGB(j, k),
+                    transformed.getRGB(j, k));
+          }
+        }
+      }
+    }
+  }
+
+  //This tests that a kernel that is not square is lined up the same way by both convolutions.
+  @Test
+  public void testRectangularKernel() {
+    PixelBuffer source = RandomPixels.randomBuffer(40, 33, 8);
+    double[][] kernel = new double[3][27];
+    for (int d = 0; d < 27; d++) {
+      kernel[0][d] = 0.01 * d;
+      kernel[2][d] = 0.02;
+    }
+    kernel[1][0] = 0.3;
+    PixelBuffer direct = new ConvolutionEngine(kernel, ConvolutionEngine.BorderMode.CLAMP)
+            .apply(source);
+    PixelBuffer transformed = new FftConvolution(kernel, ConvolutionEngine.BorderMode.CLAMP)
+            .apply(source);
+    for (int j = 0; j < source.getHeight(); j++) {
+      for (int k = 0; k < source.getWidth(); k++) {
+        assertEquals(direct.getRGB(j, k), transformed.getRGB(j, k));
+      }
+    }
+  }
+}
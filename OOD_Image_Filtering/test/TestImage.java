@@ -0,0 +1,229 @@
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+/**
+ * This is the test class for the Image model. Unlike the controller tests, these run the real
+ * model on small images and check the pixels it produces.
+ */
+public class TestImage {
+
+  //This tests that a snapshot of a mapped image is a mapped image of its own, which owns its
+  // scratch file, stays readable after the original is closed, and does not see later changes.
+  @Test
+  public void testMappedSnapshot() throws IOException {
+    MappedImage original = new MappedImage(20, 10);
+    original.getPixelBuffer().setRGB(3, 4, 10, 20, 30);
+    ImageInterface snapshot = original.snapshot();
+    assertTrue(snapshot instanceof MappedImage);
+
+    original.getPixelBuffer().setRGB(3, 4, 200, 200, 200);
+    original.close();
+    assertEquals(0x0A141E, snapshot.getPixelBuffer().getRGB(3, 4));
+    ((Closeable) snapshot).close();
+  }
+
+  //This tests that a snapshot of an image in memory is independent of the image in both
+  // directions.
+  @Test
+  public void testSnapshotIsIndependent() {
+    Image original = new Image(PixelLayout.getDefault().allocate(8, 8));
+    original.getPixelBuffer().setRGB(1, 1, 50, 60, 70);
+    ImageInterface snapshot = original.snapshot();
+
+    original.getPixelBuffer().setRGB(1, 1, 0, 0, 0);
+    snapshot.getPixelBuffer().setRGB(2, 2, 255, 255, 255);
+    assertEquals(0x323C46, snapshot.getPixelBuffer().getRGB(1, 1));
+    assertEquals(0, original.getPixelBuffer().getRGB(2, 2));
+  }
+
+  //This tests that an operation on an immutable image gives the same pixels as the operation on a
+  // mutable image, and leaves the immutable image it was run on as it was.
+  @Test
+  public void testImmutableOperations() {
+    Image mutable = new Image(PixelLayout.getDefault().allocate(23, 19));
+    for (int j = 0; j < 19; j++) {
+      for (int k = 0; k < 23; k++) {
+        mutable.getPixelBuffer().setRGB(j, k, j * 13 % 256, k * 11 % 256, (j + k) * 7 % 256);
+      }
+    }
+    ImmutableImage frozen = ImmutableImage.of(mutable);
+    int[][][] before = frozen.getMyImage();
+    ImmutableImageInterface blurred = frozen.blur().sepiaTone();
+    mutable.blurImage();
+    mutable.sepiaTone();
+    for (int j = 0; j < 19; j++) {
+      for (int k = 0; k < 23; k++) {
+        assertEquals(mutable.getPixelBuffer().getRGB(j, k), blurred.getRGB(j, k));
+      }
+    }
+    assertTrue(Arrays.deepEquals(before, frozen.getMyImage()));
+  }
+
+  //This tests that freezing a mapped image copies its pixels onto the heap, so the frozen image
+  // and the images made from it stay readable after the mapped image is closed.
+  @Test
+  public void testFrozenMappedImageOnHeap() throws IOException {
+    MappedImage original = new MappedImage(9, 7);
+    original.getPixelBuffer().setRGB(2, 5, 90, 120, 150);
+    ImmutableImage frozen = ImmutableImage.of(original);
+    original.close();
+    ImmutableImageInterface gray = frozen.grayScale();
+    assertEquals(0x5A7896, frozen.getRGB(2, 5));
+    assertEquals(0, frozen.getRGB(0, 0));
+    int value = gray.getRGB(2, 5) & 0xFF;
+    assertEquals(value * 0x010101, gray.getRGB(2, 5));
+    assertTrue(value > 90 && value < 150);
+  }
+
+  //This tests that a seeded mosaic paints every pixel with the mean of the pixels nearest to the
+  // same seed, with the seeds drawn from a generator started with the given number, and that the
+  // same number gives the same pixels again once the cached partition has been dropped.
+  @Test
+  public void testSeededMosaicIsRepeatable() {
+    int width = 41;
+    int height = 29;
+    for (long randomSeed : new long[]{42, -9876543210123L}) {
+      Image first = new Image(gradient(width, height));
+      first.mosaic(25, randomSeed);
+      PartitionCache.clear();
+      Image second = new Image(gradient(width, height));
+      second.mosaic(25, randomSeed);
+
+      Random random = new Random(randomSeed);
+      int[] rows = new int[25];
+      int[] columns = new int[25];
+      for (int i = 0; i < 25; i++) {
+        rows[i] = random.nextInt(height);
+      }
+      for (int i = 0; i < 25; i++) {
+        columns[i] = random.nextInt(width);
+      }
+      int[][] labels = new int[height][width];
+      long[][] sums = new long[25][4];
+      PixelBuffer source = gradient(width, height);
+      for (int j = 0; j < height; j++) {
+        for (int k = 0; k < width; k++) {
+          int best = 0;
+          for (int i = 1; i < 25; i++) {
+            if (distance(rows[i], columns[i], j, k) < distance(rows[best], columns[best], j, k)) {
+              best = i;
+            }
+          }
+          labels[j][k] = best;
+          for (int channel = 0; channel < 3; channel++) {
+            sums[best][channel] += source.getChannel(j, k, channel);
+          }
+          sums[best][3]++;
+        }
+      }
+      for (int j = 0; j < height; j++) {
+        for (int k = 0; k < width; k++) {
+          long[] sum = sums[labels[j][k]];
+          int expected = (int) (sum[0] / sum[3] << 16 | sum[1] / sum[3] << 8 | sum[2] / sum[3]);
+          assertEquals(expected, first.getPixelBuffer().getRGB(j, k));
+          assertEquals(expected, second.getPixelBuffer().getRGB(j, k));
+        }
+      }
+    }
+    Image other = new Image(gradient(width, height));
+    other.mosaic(25, 43);
+    Image seeded = new Image(gradient(width, height));
+    seeded.mosaic(25, 42);
+    assertFalse(Arrays.deepEquals(other.getMyImage(), seeded.getMyImage()));
+  }
+
+  /**
+   * This is a helper method that makes a buffer whose colours change across and down it, so
+   * every region of a mosaic gets a different mean.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @return the buffer.
+   */
+  private static PixelBuffer gradient(int width, int height) {
+    PixelBuffer buffer = PixelLayout.getDefault().allocate(width, height);
+    for (int j = 0; j < height; j++) {
+      for (int k = 0; k < width; k++) {
+        buffer.setRGB(j, k, k * 6, j * 8, (j * k) % 256);
+      }
+    }
+    return buffer;
+  }
+
+  /**
+   * This is a helper method that gets the squared distance between two pixels.
+   *
+   * @param row      the row of the first pixel.
+   * @param column   the column of the first pixel.
+   * @param otherRow the row of the second pixel.
+   * @param otherCol the column of the second pixel.
+   * @return the squared distance.
+   */
+  private static int distance(int row, int column, int otherRow, int otherCol) {
+    return (row - otherRow) * (row - otherRow) + (column - otherCol) * (column - otherCol);
+  }
+
+  //This tests that a Gaussian blur rejects sigmas that are not positive, not finite or too large
+  // for its kernel, and that the largest allowed sigma, whose kernel is far wider than the image,
+  // still leaves an image of one colour unchanged.
+  @Test
+  public void testGaussianBlurSigmaLimits() {
+    for (double sigma : new double[]{0, -1, Double.NaN, Double.POSITIVE_INFINITY, 1e9,
+        Math.nextUp(GaussianBlur.MAX_SIGMA)}) {
+      try {
+        new GaussianBlur(sigma);
+        fail("Sigma " + sigma + " was accepted.");
+      } catch (IllegalArgumentException e) {
+        assertFalse(GaussianBlur.isValidSigma(sigma));
+      }
+    }
+    GaussianBlur widest = new GaussianBlur(GaussianBlur.MAX_SIGMA);
+    assertEquals(1024, widest.getReach());
+    PixelBuffer source = PixelLayout.getDefault().allocate(3, 2);
+    for (int j = 0; j < 2; j++) {
+      for (int k = 0; k < 3; k++) {
+        source.setRGB(j, k, 200, 100, 50);
+      }
+    }
+    PixelBuffer blurred = widest.apply(source);
+    for (int j = 0; j < 2; j++) {
+      for (int k = 0; k < 3; k++) {
+        int rgb = blurred.getRGB(j, k);
+        assertTrue(Math.abs((rgb >> 16) - 200) <= 1);
+        assertTrue(Math.abs((rgb >> 8 & 0xFF) - 100) <= 1);
+        assertTrue(Math.abs((rgb & 0xFF) - 50) <= 1);
+      }
+    }
+  }
+
+  //This tests that an image with more pixels than a raster can index is refused as JPEG before
+  // the file is made, rather than failing inside the encoder.
+  @Test
+  public void testHugeJpegRefused() throws IOException {
+    PixelBuffer huge = new ProceduralPixelBuffer(50000, 50000);
+    File file = new File(System.getProperty("java.io.tmpdir"), "huge" + System.nanoTime() + ".jpg");
+    try {
+      ImageUtil.writeImage(huge, file.getPath());
+      fail("A JPEG with more pixels than a raster can index was written.");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("JPEG"));
+      assertFalse(file.exists());
+    }
+    try {
+      new PixelBufferImage(huge).getData();
+      fail("The whole image was read as one raster.");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().contains("at once"));
+    }
+  }
+}
@@ -0,0 +1,43 @@
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for the box blur worked out from integral image sums. It is checked
+ * against sums taken pixel by pixel over small random images of awkward sizes.
+ */
+public class TestIntegralImage {
+
+  //This tests that the box blur gives the rounded mean of the box cut off at the edges, for radii
+  // from none to larger than the image, on images one pixel wide, one pixel high and odd sized.
+  @Test
+  public void testBoxBlurMatchesBruteForce() {
+    int[][] sizes = {{1, 9}, {9, 1}, {13, 7}, {31, 17}, {5, 70}};
+    for (int[] size : sizes) {
+      PixelBuffer source = RandomPixels.randomBuffer(size[0], size[1], 7);
+      for (int radius : new int[]{0, 1, 3, 40}) {
+        PixelBuffer blurred = IntegralImage.boxBlur(source, radius);
+        for (int j = 0; j < size[1]; j++) {
+          for (int k = 0; k < size[0]; k++) {
+            int top = Math.max(0, j - radius);
+            int bottom = Math.min(size[1], j + radius + 1);
+            int left = Math.max(0, k - radius);
+            int right = Math.min(size[0], k + radius + 1);
+            int expected = 0;
+            for (int channel = 0; channel < 3; channel++) {
+              long sum = 0;
+              for (int y = top; y < bottom; y++) {
+                for (int x = left; x < right; x++) {
+                  sum += source.getChannel(y, x, channel);
+                }
+              }
+              long count = (long) (bottom - top) * (right - left);
+              expected |= (int) ((sum + count / 2) / count) << (16 - 8 * channel);
+            }
+            assertEquals(expected, blurred.getRGB(j, k));
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+/**
+ * This is the test class for reading and writing binary Netpbm files. Small files are written
+ * byte by byte to check the header parsing, and images are written and read back to check that
+ * no pixel changes on the way.
+ */
+public class TestNetpbmIO {
+
+  //This tests that comments are skipped wherever white space may appear in the header, including
+  // straight after a number.
+  @Test
+  public void testHeaderWithComments() throws IOException {
+    File file = write("c.ppm", "P6\n# made by hand\n2# width\n1\n# max\n255\n",
+            10, 20, 30, 40, 50, 60);
+    NetpbmIO image = NetpbmIO.open(file);
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    int[] row = new int[2];
+    image.getRow(0, row);
+    assertEquals(0x0A141E, row[0]);
+    assertEquals(0x28323C, row[1]);
+  }
+
+  //This tests that a PAM header is read key by key in any order, and that the alpha sample of a
+  // gray and alpha tuple or of an rgb and alpha tuple is skipped.
+  @Test
+  public void testPamKeys() throws IOException {
+    File file = write("k.pam", "P7\nTUPLTYPE GRAYSCALE_ALPHA\nHEIGHT 1\nDEPTH 2\nWIDTH 3\n"
+            + "MAXVAL 255\nENDHDR\n", 0, 9, 128, 9, 255, 9);
+    NetpbmIO image = NetpbmIO.open(file);
+    assertEquals(3, image.getWidth());
+    assertEquals(1, image.getHeight());
+    int[] row = new int[3];
+    image.getRow(0, row);
+    assertEquals(0x000000, row[0]);
+    assertEquals(0x808080, row[1]);
+    assertEquals(0xFFFFFF, row[2]);
+
+    file = write("a.pam", "P7\nWIDTH 1\nHEIGHT 1\nDEPTH 4\nMAXVAL 255\nTUPLTYPE RGB_ALPHA\n"
+            + "ENDHDR\n", 1, 2, 3, 4);
+    NetpbmIO.open(file).getRow(0, row);
+    assertEquals(0x010203, row[0]);
+  }
+
+  //This tests that samples with a maximum other than 255 are scaled to 0 to 255 and rounded.
+  @Test
+  public void testOtherMaximum() throws IOException {
+    File file = write("m.pgm", "P5 4 1 100\n", 0, 1, 50, 100);
+    int[] row = new int[4];
+    NetpbmIO.open(file).getRow(0, row);
+    assertEquals(0x000000, row[0]);
+    assertEquals(0x030303, row[1]);
+    assertEquals(0x808080, row[2]);
+    assertEquals(0xFFFFFF, row[3]);
+  }
+
+  //This tests that two byte samples are read high byte first and scaled to 0 to 255.
+  @Test
+  public void testSixteenBitSamples() throws IOException {
+    File file = write("s.ppm", "P6 2 1 65535\n",
+            0xFF, 0xFF, 0x80, 0x00, 0x00, 0x00, 0x01, 0x01, 0x00, 0x80, 0x12, 0x34);
+    int[] row = new int[2];
+    NetpbmIO.open(file).getRow(0, row);
+    assertEquals(0xFF8000, row[0]);
+    assertEquals(0x010012, row[1]);
+  }
+
+  //This tests that files that are cut short or are not binary Netpbm files are refused with an
+  // IOException rather than read past their end.
+  @Test
+  public void testBadFiles() throws IOException {
+    String[] headers = {"P6 3 2 255\n", "P6 3 2", "P3 1 1 255\n", "P7\nWIDTH 1\nHEIGHT 1\n",
+        "P6 0 1 255\n", "P5 1 1 70000\n", ""};
+    for (String header : headers) {
+      File file = write("bad.ppm", header, 1, 2, 3);
+      try {
+        NetpbmIO.open(file);
+        fail("Opened a bad file: " + header);
+      } catch (IOException e) {
+        //The file is refused.
+      }
+    }
+  }
+
+  //This tests that the formats are chosen by extension whatever its case.
+  @Test
+  public void testIsNetpbm() {
+    assertTrue(NetpbmIO.isNetpbm("a.ppm"));
+    assertTrue(NetpbmIO.isNetpbm("a.PGM"));
+    assertTrue(NetpbmIO.isNetpbm("dir/a.pam"));
+    assertTrue(NetpbmIO.isNetpbm("a.pnm"));
+    assertFalse(NetpbmIO.isNetpbm("a.png"));
+  }
+
+  //This tests that images written as PPM, PNM and PAM read back with every pixel the same, and
+  // that PGM reads back as the gray scale of the image, on sizes that are not square.
+  @Test
+  public void testRoundTrips() throws IOException {
+    int[][] sizes = {{1, 1}, {1, 9}, {9, 1}, {37, 23}};
+    for (int[] size : sizes) {
+      PixelBuffer source = RandomPixels.randomBuffer(size[0], size[1], size[0] + size[1]);
+      PixelBuffer gray = ColorMatrixOp.GRAY.apply(source);
+      for (String format : new String[]{"ppm", "pnm", "pam", "pgm"}) {
+        File file = File.createTempFile("round", "." + format);
+        file.deleteOnExit();
+        for (boolean inOrder : new boolean[]{false, true}) {
+          NetpbmIO.write(source, file.getPath(), inOrder);
+          NetpbmIO image = NetpbmIO.open(file);
+          assertEquals(size[0], image.getWidth());
+          assertEquals(size[1], image.getHeight());
+          PixelBuffer back = PixelLayout.getDefault().allocate(size[0], size[1]);
+          image.readInto(back);
+          PixelBuffer expected = format.equals("pgm") ? gray : source;
+          for (int j = 0; j < size[1]; j++) {
+            for (int k = 0; k < size[0]; k++) {
+              assertEquals(format + " at " + j + "," + k, expected.getRGB(j, k),
+                      back.getRGB(j, k));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that writes a file made of a text header followed by bytes.
+   *
+   * @param name   the name the file ends with, which gives its extension.
+   * @param header the text header.
+   * @param bytes  the bytes after the header.
+   * @return the file, which is deleted when the tests end.
+   * @throws IOException if the file cannot be written.
+   */
+  private static File write(String name, String header, int... bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(header.getBytes(StandardCharsets.US_ASCII));
+    for (int b : bytes) {
+      out.write(b);
+    }
+    File file = File.createTempFile("netpbm", name);
+    file.deleteOnExit();
+    Files.write(file.toPath(), out.toByteArray());
+    return file;
+  }
+}
@@ -0,0 +1,115 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for ordered dithering. The thresholds are checked against the Bayer
+ * matrix worked out from the bits of the row and column, rather than built up from smaller
+ * matrices as the class does.
+ */
+public class TestOrderedDither {
+
+  //This tests the thresholds of the smallest matrix by hand: a gray pixel turns white exactly
+  // when it reaches 32, 160, 224 or 96, depending on where it falls in the tiled matrix.
+  @Test
+  public void testTwoByTwoThresholds() {
+    int[][] thresholds = {{32, 160}, {224, 96}};
+    for (int gray = 0; gray < 256; gray++) {
+      PixelBuffer result = new OrderedDither(2).apply(grayBuffer(5, 3, gray));
+      for (int j = 0; j < 3; j++) {
+        for (int k = 0; k < 5; k++) {
+          int expected = gray >= thresholds[j % 2][k % 2] ? 0xFFFFFF : 0;
+          assertEquals(gray + " at " + j + "," + k, expected, result.getRGB(j, k));
+        }
+      }
+    }
+  }
+
+  //This tests every matrix size against the Bayer matrix worked out from the bits of the row and
+  // column, with the threshold in the middle of the slice of 0 to 256 each entry stands for, on
+  // every gray value and an image that is not a multiple of the matrix.
+  @Test
+  public void testThresholdsMatchBayerMatrix() {
+    for (int size : new int[]{2, 4, 8}) {
+      int cells = size * size;
+      for (int gray = 0; gray < 256; gray++) {
+        PixelBuffer result = new OrderedDither(size).apply(grayBuffer(19, 11, gray));
+        for (int j = 0; j < 11; j++) {
+          for (int k = 0; k < 19; k++) {
+            int entry = bayer(size, j % size, k % size);
+            boolean white = (2 * entry + 1) * 128 <= gray * cells;
+            assertEquals(size + " " + gray + " at " + j + "," + k, white ? 0xFFFFFF : 0,
+                    result.getRGB(j, k));
+          }
+        }
+      }
+    }
+  }
+
+  //This tests that coloured pixels are compared by their gray value, and that running the dither
+  // as a stage of a pipeline gives the same pixels as dithering the whole buffer.
+  @Test
+  public void testColourAndCursor() {
+    Random random = new Random(2);
+    PixelBuffer source = PixelLayout.getDefault().allocate(37, 29);
+    for (int j = 0; j < 29; j++) {
+      for (int k = 0; k < 37; k++) {
+        source.setRGB(j, k, random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    OrderedDither dither = new OrderedDither(4);
+    PixelBuffer gray = ColorMatrixOp.GRAY.apply(source);
+    PixelBuffer whole = dither.apply(source);
+    PixelBuffer fromGray = dither.apply(gray);
+    ScanlineStage.Cursor cursor = dither.open(source);
+    int[] row = new int[37];
+    for (int j = 0; j < 29; j++) {
+      cursor.nextRow(j, row);
+      for (int k = 0; k < 37; k++) {
+        assertEquals(fromGray.getRGB(j, k), whole.getRGB(j, k));
+        assertEquals(whole.getRGB(j, k), row[k]);
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that works out an entry of the Bayer matrix from the bits of its row
+   * and column: the bits of the row exclusive or the column and the bits of the row are
+   * interleaved, and the order of the bits is reversed.
+   *
+   * @param size   the side of the matrix, a power of two.
+   * @param row    the row of the entry.
+   * @param column the column of the entry.
+   * @return the entry, from 0 to size * size - 1.
+   */
+  private static int bayer(int size, int row, int column) {
+    int bits = Integer.numberOfTrailingZeros(size);
+    int value = 0;
+    for (int b = 0; b < bits; b++) {
+      int shift = 2 * (bits - 1 - b);
+      value |= (((row ^ column) >> b) & 1) << (shift + 1);
+      value |= ((row >> b) & 1) << shift;
+    }
+    return value;
+  }
+
+  /**
+   * This is a helper method that makes a buffer with every pixel the same gray.
+   *
+   * @param width  the width of the buffer.
+   * @param height the height of the buffer.
+   * @param gray   the gray value of every pixel.
+   * @return the buffer.
+   */
+  private static PixelBuffer grayBuffer(int width, int height, int gray) {
+    PixelBuffer buffer = PixelLayout.getDefault().allocate(width, height);
+    for (int j = 0; j < height; j++) {
+      for (int k = 0; k < width; k++) {
+        buffer.setRGB(j, k, gray, gray, gray);
+      }
+    }
+    return buffer;
+  }
+}
@@ -0,0 +1,68 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for fusing pointwise operations. A fused operation must give exactly the
+ * same pixels as running its operations one after another, each over the whole image.
+ */
+public class TestPointwiseOp {
+
+  //This tests that a fused chain gives the same pixels as applying each operation in turn, with
+  // operations that push values past 255 and below 0, so each one must clamp before the next.
+  @Test
+  public void testFusedMatchesSequential() {
+    PointwiseOp brighten = new ColorMatrixOp(new double[][]{
+        {2.5, 0, 0, 30}, {0, 1.75, 0.5, 0}, {-0.5, 0, 3, -100}});
+    PointwiseOp darken = new ColorMatrixOp(new double[][]{
+        {0.4, 0, 0, -20}, {0.1, 0.6, 0, 0}, {0, 0.2, 0.5, 10}});
+    PointwiseOp invert = (rgb, width) -> {
+      for (int k = 0; k < width; k++) {
+        rgb[k] = ~rgb[k] & 0xFFFFFF;
+      }
+    };
+    PointwiseOp[] ops = {brighten, ColorMatrixOp.SEPIA, invert, darken, ColorMatrixOp.GRAY};
+    PixelBuffer source = RandomPixels.randomBuffer(67, 41, 12);
+
+    PixelBuffer sequential = source;
+    PointwiseOp fused = ops[0];
+    for (int i = 0; i < ops.length; i++) {
+      sequential = ops[i].apply(sequential);
+      if (i > 0) {
+        fused = fused.andThen(ops[i]);
+      }
+    }
+    PixelBuffer once = fused.apply(source);
+    for (int j = 0; j < source.getHeight(); j++) {
+      for (int k = 0; k < source.getWidth(); k++) {
+        assertEquals(sequential.getRGB(j, k), once.getRGB(j, k));
+      }
+    }
+  }
+
+  //This tests that a script whose pointwise commands are fused by the controller gives the same
+  // pixels as calling the model method of each command in turn.
+  @Test
+  public void testScriptFusionMatchesModel() throws IOException {
+    Image scripted = new Image(RandomPixels.randomBuffer(30, 22, 4));
+    Image expected = new Image(RandomPixels.randomBuffer(30, 22, 4));
+    ControllerForScript controller = new ControllerForScript(new StringReader(
+            "load a.png\nsepia\ncolormatrix 2 0 0 -40 0 1 0 25 0.5 0 1 0\ngray\nsepia\n"
+                    + "save res a.png\n"));
+    controller.goControllerForScript(new MockManager(scripted, new StringBuilder()));
+
+    expected.sepiaTone();
+    expected.colorMatrix(new double[][]{{2, 0, 0, -40}, {0, 1, 0, 25}, {0.5, 0, 1, 0}});
+    expected.grayScale();
+    expected.sepiaTone();
+    for (int j = 0; j < 22; j++) {
+      for (int k = 0; k < 30; k++) {
+        assertEquals(expected.getPixelBuffer().getRGB(j, k),
+                scripted.getPixelBuffer().getRGB(j, k));
+      }
+    }
+  }
+}
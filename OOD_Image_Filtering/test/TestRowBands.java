@@ -0,0 +1,109 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for splitting work into bands of rows. It checks that the bands cover
+ * every row once and that the filters that run on bands give the same pixels whatever the number
+ * of threads.
+ */
+public class TestRowBands {
+
+  //This tests that the bands cover every row exactly once for counts smaller than, equal to and
+  // much larger than the fewest rows in a band.
+  @Test
+  public void testBandsCoverEveryRowOnce() {
+    String old = System.getProperty("image.parallelism");
+    try {
+      for (String parallelism : new String[]{"1", "3", "8"}) {
+        System.setProperty("image.parallelism", parallelism);
+        for (int count : new int[]{0, 1, 15, 16, 17, 100, 1001}) {
+          int[] covered = new int[count];
+          RowBands.run(count, (from, to) -> {
+            for (int j = from; j < to; j++) {
+              synchronized (covered) {
+                covered[j]++;
+              }
+            }
+          });
+          for (int j = 0; j < count; j++) {
+            assertEquals(parallelism + " " + count + " at " + j, 1, covered[j]);
+          }
+        }
+      }
+    } finally {
+      restore(old);
+    }
+  }
+
+  //This tests that every filter that splits its work into bands gives exactly the same pixels on
+  // one thread as on four, on an image tall enough to be split and not a multiple of a band.
+  @Test
+  public void testFiltersMatchAcrossParallelism() {
+    double[][] small = new double[5][5];
+    double[][] large = new double[25][25];
+    for (double[] row : small) {
+      Arrays.fill(row, 1 / 25.0);
+    }
+    for (double[] row : large) {
+      Arrays.fill(row, 1 / 625.0);
+    }
+    assertFilterMatches("blur", Image::blurImage);
+    assertFilterMatches("gaussian", image -> image.blurImage(2.5));
+    assertFilterMatches("sharpen", Image::sharpenImage);
+    assertFilterMatches("small kernel", image -> image.convolve(small));
+    assertFilterMatches("large kernel", image -> image.convolve(large));
+    assertFilterMatches("box blur", image -> image.boxBlur(4));
+    assertFilterMatches("greyscale", Image::grayScale);
+    assertFilterMatches("sepia", Image::sepiaTone);
+    assertFilterMatches("dither", Image::dither);
+    assertFilterMatches("ordered dither", image -> image.orderedDither(4));
+    assertFilterMatches("mosaic", image -> image.mosaic(60, 9));
+  }
+
+  /**
+   * This is a helper method that runs a filter on the same image with a parallelism of one and
+   * of four and checks that the pixels are the same. The parallelism is put back afterwards.
+   *
+   * @param name   the name of the filter, for the failure message.
+   * @param filter the filter to run.
+   */
+  private static void assertFilterMatches(String name, Consumer<Image> filter) {
+    String old = System.getProperty("image.parallelism");
+    try {
+      System.setProperty("image.parallelism", "1");
+      PartitionCache.clear();
+      Image sequential = new Image(RandomPixels.randomBuffer(150, 203, 21));
+      filter.accept(sequential);
+      System.setProperty("image.parallelism", "4");
+      PartitionCache.clear();
+      Image parallel = new Image(RandomPixels.randomBuffer(150, 203, 21));
+      filter.accept(parallel);
+      PixelBuffer expected = sequential.getPixelBuffer();
+      PixelBuffer actual = parallel.getPixelBuffer();
+      for (int j = 0; j < expected.getHeight(); j++) {
+        for (int k = 0; k < expected.getWidth(); k++) {
+          assertEquals(name + " at " + j + "," + k, expected.getRGB(j, k), actual.getRGB(j, k));
+        }
+      }
+    } finally {
+      restore(old);
+    }
+  }
+
+  /**
+   * This is a helper method that puts back the parallelism a test found.
+   *
+   * @param old the value of the property before the test, or null if it was not set.
+   */
+  private static void restore(String old) {
+    if (old == null) {
+      System.clearProperty("image.parallelism");
+    } else {
+      System.setProperty("image.parallelism", old);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for streaming an image through a chain of filters a few rows at a time.
+ * Every streamed file is read back and checked against the same filters run on the whole image.
+ */
+public class TestStreamedImage {
+
+  //This tests chains of filters that can be streamed, saved to formats that are written a row at
+  // a time, against the same chains run on the loaded image.
+  @Test
+  public void testStreamedMatchesWholeImage() throws IOException {
+    double[][] kernel = {{0.05, 0.1, 0.05}, {0.1, 0.4, 0.1}, {0.05, 0.1, 0.05}};
+    double[][] matrix = {{0.9, 0.2, 0, 5}, {0, 1.1, -0.1, 0}, {0.3, 0, 0.7, -12}};
+    assertStreamMatches("gray and blur", image -> {
+      image.grayScale();
+      image.blurImage();
+    });
+    assertStreamMatches("sharpen and sepia", image -> {
+      image.sharpenImage();
+      image.sepiaTone();
+    });
+    assertStreamMatches("kernel and matrix", image -> {
+      image.convolve(kernel);
+      image.colorMatrix(matrix);
+      image.blurImage();
+    });
+    assertStreamMatches("dither", image -> {
+      image.blurImage();
+      image.dither();
+    });
+    assertStreamMatches("ordered dither", image -> {
+      image.sepiaTone();
+      image.orderedDither(8);
+    });
+  }
+
+  //This tests that a colour matrix given to a streamed image is copied, so changing the array
+  // afterwards does not change the result, even when a box blur that cannot be streamed makes
+  // the held back filters run again on the loaded image.
+  @Test
+  public void testColorMatrixIsCopied() throws IOException {
+    double[][] matrix = {{0.5, 0, 0}, {0, 0.5, 0}, {0, 0, 0.5}};
+    assertStreamMatches("changed matrix", image -> {
+      double[][] given = {matrix[0].clone(), matrix[1].clone(), matrix[2].clone()};
+      image.colorMatrix(given);
+      given[0][0] = 2;
+      given[2] = new double[]{1, 1, 1};
+      image.boxBlur(2);
+    }, image -> {
+      image.colorMatrix(matrix);
+      image.boxBlur(2);
+    });
+  }
+
+  /**
+   * This is a helper method that runs the same filters on a streamed image and on a loaded
+   * image, and checks that the saved files hold the same pixels.
+   *
+   * @param name    the name of the chain, for the failure message.
+   * @param filters the filters to run.
+   * @throws IOException if a file cannot be read or written.
+   */
+  private static void assertStreamMatches(String name, Consumer<ImageInterface> filters)
+          throws IOException {
+    assertStreamMatches(name, filters, filters);
+  }
+
+  /**
+   * This is a helper method that runs filters on a streamed image and the expected filters on a
+   * loaded image, and checks that the saved files hold the same pixels, for each format that is
+   * written a row at a time.
+   *
+   * @param name     the name of the chain, for the failure message.
+   * @param streamed the filters to run on the streamed image.
+   * @param expected the filters to run on the loaded image.
+   * @throws IOException if a file cannot be read or written.
+   */
+  private static void assertStreamMatches(String name, Consumer<ImageInterface> streamed,
+                                          Consumer<ImageInterface> expected) throws IOException {
+    File directory = Files.createTempDirectory("stream").toFile();
+    directory.deleteOnExit();
+    ImageManager manager = new ImageManager();
+    manager.saveImage(new Image(RandomPixels.randomBuffer(53, 71, name.length())),
+            directory.getPath(), "in.png");
+    new File(directory, "in.png").deleteOnExit();
+    ImageInterface whole = manager.loadImage(new File(directory, "in.png").getPath());
+    expected.accept(whole);
+    for (String format : new String[]{"png", "ppm", "pam"}) {
+      ImageInterface image = manager.streamImage(new File(directory, "in.png").getPath());
+      streamed.accept(image);
+      manager.saveImage(image, directory.getPath(), "out." + format);
+      File out = new File(directory, "out." + format);
+      out.deleteOnExit();
+      PixelBuffer result = manager.loadImage(out.getPath()).getPixelBuffer();
+      for (int j = 0; j < 71; j++) {
+        for (int k = 0; k < 53; k++) {
+          assertEquals(name + " " + format + " at " + j + "," + k,
+                  whole.getPixelBuffer().getRGB(j, k), result.getRGB(j, k));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * This is the test class for the tiled pixel buffer. A small PNG file is split into tiles that do
+ * not divide it evenly, with caches too small to hold it, and every pixel is checked against the
+ * file decoded whole.
+ */
+public class TestTiledPixelBuffer {
+
+  //This tests that reading the rows from the top down, and then from the bottom up, gives the
+  // pixels of the file, with caches that hold one row of tiles, several rows, and all of them.
+  @Test
+  public void testRowsMatchFile() throws IOException {
+    BufferedImage image = randomImage(53, 41);
+    File file = save(image);
+    for (long cacheBytes : new long[]{1, 4L * 53 * 7 * 3, 1 << 20}) {
+      try (TiledPixelBuffer tiled = TiledPixelBuffer.open(file, 7, cacheBytes)) {
+        int[] row = new int[53];
+        for (int pass = 0; pass < 2; pass++) {
+          for (int i = 0; i < 41; i++) {
+            int j = pass == 0 ? i : 40 - i;
+            tiled.getRow(j, row);
+            for (int k = 0; k < 53; k++) {
+              assertEquals(cacheBytes + " at " + j + "," + k, image.getRGB(k, j) & 0xFFFFFF,
+                      row[k]);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  //This tests that pixels written to the buffer survive their tiles being dropped from a small
+  // cache, and are not replaced by the file when the rest of their row of tiles is decoded.
+  @Test
+  public void testWritesSurviveEviction() throws IOException {
+    BufferedImage image = randomImage(40, 30);
+    File file = save(image);
+    int[][] expected = new int[30][40];
+    for (int j = 0; j < 30; j++) {
+      for (int k = 0; k < 40; k++) {
+        expected[j][k] = image.getRGB(k, j) & 0xFFFFFF;
+      }
+    }
+    try (TiledPixelBuffer tiled = TiledPixelBuffer.open(file, 8, 4L * 8 * 8 * 3)) {
+      Random random = new Random(9);
+      for (int i = 0; i < 200; i++) {
+        int j = random.nextInt(30);
+        int k = random.nextInt(40);
+        int r = random.nextInt(256);
+        tiled.setRGB(j, k, r, 255 - r, 7);
+        expected[j][k] = r << 16 | (255 - r) << 8 | 7;
+        tiled.getRGB(random.nextInt(30), random.nextInt(40));
+      }
+      for (int j = 0; j < 30; j++) {
+        for (int k = 0; k < 40; k++) {
+          assertEquals(expected[j][k], tiled.getRGB(j, k));
+        }
+      }
+    }
+  }
+
+  /**
+   * This is a helper method that makes an image of random pixels.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @return the image.
+   */
+  private static BufferedImage randomImage(int width, int height) {
+    Random random = new Random(width * 31L + height);
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int j = 0; j < height; j++) {
+      for (int k = 0; k < width; k++) {
+        image.setRGB(k, j, random.nextInt(1 << 24));
+      }
+    }
+    return image;
+  }
+
+  /**
+   * This is a helper method that saves an image to a PNG file that is deleted when the tests end.
+   *
+   * @param image the image to save.
+   * @return the file.
+   * @throws IOException if the file cannot be written.
+   */
+  private static File save(BufferedImage image) throws IOException {
+    File file = File.createTempFile("tiled", ".png");
+    file.deleteOnExit();
+    ImageIO.write(image, "png", file);
+    return file;
+  }
+}
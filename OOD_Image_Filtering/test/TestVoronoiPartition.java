@@ -0,0 +1,179 @@
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * This is the test class for the split of an image into the regions nearest to each seed. The
+ * labels are checked against searching every seed for every pixel.
+ */
+public class TestVoronoiPartition {
+
+  //This tests that the grid search labels every pixel with exactly the seed that searching every
+  // seed in order finds, ties going to the lower index, for few and many seeds, seeds that share
+  // a pixel, and images one pixel wide or high.
+  @Test
+  public void testGridMatchesBruteForce() {
+    int[][] cases = {{61, 47, 1}, {61, 47, 7}, {61, 47, 300}, {1, 50, 5}, {50, 1, 5},
+        {40, 30, 2000}};
+    for (int[] size : cases) {
+      int[][] seeds = randomSeeds(size[0], size[1], size[2], size[2]);
+      VoronoiPartition partition = new VoronoiPartition(size[0], size[1], seeds[0], seeds[1],
+              VoronoiPartition.Method.GRID);
+      for (int j = 0; j < size[1]; j++) {
+        for (int k = 0; k < size[0]; k++) {
+          assertEquals(size[0] + "x" + size[1] + " " + size[2] + " at " + j + "," + k,
+                  nearest(seeds, j, k), partition.getLabel(j, k));
+        }
+      }
+    }
+  }
+
+  //This tests that the grid gives the same labels when it keeps no label per pixel and finds
+  // them again for each row.
+  @Test
+  public void testGridWithoutStoredLabels() {
+    int[][] seeds = randomSeeds(70, 45, 90, 3);
+    VoronoiPartition stored = new VoronoiPartition(70, 45, seeds[0], seeds[1]);
+    String old = System.getProperty("image.mapThreshold");
+    VoronoiPartition unstored;
+    try {
+      System.setProperty("image.mapThreshold", "100");
+      unstored = new VoronoiPartition(70, 45, seeds[0], seeds[1]);
+    } finally {
+      if (old == null) {
+        System.clearProperty("image.mapThreshold");
+      } else {
+        System.setProperty("image.mapThreshold", old);
+      }
+    }
+    assertTrue(unstored.getBytes() < stored.getBytes());
+    for (int j = 0; j < 45; j++) {
+      for (int k = 0; k < 70; k++) {
+        assertEquals(stored.getLabel(j, k), unstored.getLabel(j, k));
+      }
+    }
+  }
+
+  //This tests what jump flooding promises: every label is one of the seeds, every seed keeps its
+  // own pixel, only a few pixels get a seed that is not the nearest, and the extra pass of JFA+1
+  // never leaves more of those than jump flooding alone.
+  @Test
+  public void testJumpFloodIsNearlyExact() {
+    int[][] cases = {{61, 47, 7}, {128, 96, 150}, {97, 131, 600}};
+    for (int[] size : cases) {
+      int width = size[0];
+      int height = size[1];
+      int[][] seeds = distinctSeeds(width, height, size[2], size[2] + 1);
+      VoronoiPartition flood = new VoronoiPartition(width, height, seeds[0], seeds[1],
+              VoronoiPartition.Method.JUMP_FLOOD);
+      VoronoiPartition floodPlusOne = new VoronoiPartition(width, height, seeds[0], seeds[1],
+              VoronoiPartition.Method.JUMP_FLOOD_PLUS_ONE);
+      for (int i = 0; i < size[2]; i++) {
+        assertEquals(i, flood.getLabel(seeds[0][i], seeds[1][i]));
+        assertEquals(i, floodPlusOne.getLabel(seeds[0][i], seeds[1][i]));
+      }
+      int wrong = 0;
+      int wrongPlusOne = 0;
+      for (int j = 0; j < height; j++) {
+        for (int k = 0; k < width; k++) {
+          long best = distance(seeds, nearest(seeds, j, k), j, k);
+          int label = flood.getLabel(j, k);
+          int labelPlusOne = floodPlusOne.getLabel(j, k);
+          assertTrue(label >= 0 && label < size[2]);
+          assertTrue(labelPlusOne >= 0 && labelPlusOne < size[2]);
+          if (distance(seeds, label, j, k) != best) {
+            wrong++;
+          }
+          if (distance(seeds, labelPlusOne, j, k) != best) {
+            wrongPlusOne++;
+          }
+        }
+      }
+      assertTrue(size[2] + " seeds: " + wrong + " wrong", wrong * 100 <= width * height);
+      assertTrue(size[2] + " seeds: " + wrongPlusOne + " wrong", wrongPlusOne <= wrong);
+    }
+  }
+
+  /**
+   * This is a helper method that finds the nearest seed to a pixel by searching every seed in
+   * order, keeping the lower index on a tie.
+   *
+   * @param seeds  the rows and then the columns of the seeds.
+   * @param row    the row of the pixel.
+   * @param column the column of the pixel.
+   * @return the index of the nearest seed.
+   */
+  private static int nearest(int[][] seeds, int row, int column) {
+    int best = 0;
+    for (int i = 1; i < seeds[0].length; i++) {
+      if (distance(seeds, i, row, column) < distance(seeds, best, row, column)) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * This is a helper method that gets the squared distance from a seed to a pixel.
+   *
+   * @param seeds  the rows and then the columns of the seeds.
+   * @param seed   the index of the seed.
+   * @param row    the row of the pixel.
+   * @param column the column of the pixel.
+   * @return the squared distance.
+   */
+  private static long distance(int[][] seeds, int seed, int row, int column) {
+    long down = seeds[0][seed] - row;
+    long across = seeds[1][seed] - column;
+    return down * down + across * across;
+  }
+
+  /**
+   * This is a helper method that places seeds at random, where several may share a pixel.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param count  the number of seeds.
+   * @param seed   the number the places are drawn from.
+   * @return the rows and then the columns of the seeds.
+   */
+  private static int[][] randomSeeds(int width, int height, int count, long seed) {
+    Random random = new Random(seed);
+    int[][] seeds = new int[2][count];
+    for (int i = 0; i < count; i++) {
+      seeds[0][i] = random.nextInt(height);
+      seeds[1][i] = random.nextInt(width);
+    }
+    return seeds;
+  }
+
+  /**
+   * This is a helper method that places seeds at random on different pixels.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param count  the number of seeds, no more than the pixels of the image.
+   * @param seed   the number the places are drawn from.
+   * @return the rows and then the columns of the seeds.
+   */
+  private static int[][] distinctSeeds(int width, int height, int count, long seed) {
+    Random random = new Random(seed);
+    Set<Integer> taken = new HashSet<>();
+    int[][] seeds = new int[2][count];
+    int i = 0;
+    while (i < count) {
+      int pixel = random.nextInt(width * height);
+      if (taken.add(pixel)) {
+        seeds[0][i] = pixel / width;
+        seeds[1][i] = pixel % width;
+        i++;
+      }
+    }
+    return seeds;
+  }
+}